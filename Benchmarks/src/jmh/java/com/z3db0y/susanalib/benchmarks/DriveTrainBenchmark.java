@@ -0,0 +1,62 @@
+package com.z3db0y.susanalib.benchmarks;
+
+import com.z3db0y.susanalib.MecanumDriveTrain;
+import com.z3db0y.susanalib.Motor;
+import com.z3db0y.susanalib.sim.SimRobot;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+// Runs against SimRobot, so the numbers include the (small) cost of the motor model.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DriveTrainBenchmark {
+
+    SimRobot robot;
+    Motor frontLeft;
+    MecanumDriveTrain driveTrain;
+    double t = 0;
+
+    @Setup
+    public void setup() {
+        robot = new SimRobot();
+        frontLeft = new Motor(robot.hardwareMap, "frontLeft");
+        Motor frontRight = new Motor(robot.hardwareMap, "frontRight");
+        Motor backLeft = new Motor(robot.hardwareMap, "backLeft");
+        Motor backRight = new Motor(robot.hardwareMap, "backRight");
+        backLeft.setDirection(Motor.Direction.REVERSE);
+        frontRight.setDirection(Motor.Direction.REVERSE);
+        driveTrain = new MecanumDriveTrain(frontLeft, frontRight, backLeft, backRight, robot.imu);
+    }
+
+    @TearDown
+    public void tearDown() {
+        robot.close();
+    }
+
+    @Benchmark
+    public void driveRobotCentric() {
+        t += 0.01;
+        driveTrain.driveRobotCentric(Math.sin(t), 0.3, Math.cos(t));
+    }
+
+    @Benchmark
+    public boolean driveTrainIsStalled() {
+        return driveTrain.isStalled();
+    }
+
+    @Benchmark
+    public boolean motorIsStalled() {
+        return frontLeft.isStalled();
+    }
+
+}
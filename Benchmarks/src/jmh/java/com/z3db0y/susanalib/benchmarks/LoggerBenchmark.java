@@ -0,0 +1,43 @@
+package com.z3db0y.susanalib.benchmarks;
+
+import com.z3db0y.susanalib.Logger;
+import com.z3db0y.susanalib.sim.SimTelemetry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LoggerBenchmark {
+
+    double value = 0.7;
+
+    @Setup
+    public void setup() {
+        Logger.setTelemetry(SimTelemetry.create());
+    }
+
+    @Benchmark
+    public void addDataAndUpdate() {
+        Logger.addData("|--  frontRight power: " + value);
+        Logger.update();
+    }
+
+    // About what Drive.Logging() sends every teleop loop.
+    @Benchmark
+    public void teleopLogging() {
+        for (int i = 0; i < 25; i++) {
+            Logger.addData("|--  value " + i + ": " + value);
+        }
+        Logger.update();
+    }
+
+}
@@ -0,0 +1,65 @@
+package org.firstinspires.ftc.teamcode.autonomous.vision.benchmarks;
+
+import org.firstinspires.ftc.teamcode.autonomous.vision.DuckDetector;
+import org.firstinspires.ftc.teamcode.autonomous.vision.TseDetector;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import nu.pattern.OpenCV;
+
+// Frames are the recorded stills, scaled to the 320x240 RGBA the webcam hands to processFrame().
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class VisionBenchmark {
+
+    @Param({"centerduck0.jpg", "leftduck0.jpg", "rightduck0.jpg", "noduck0.jpg"})
+    public String frame;
+
+    @Param({"true", "false"})
+    public boolean preview;
+
+    Mat input;
+    DuckDetector duckDetector;
+    TseDetector tseDetector;
+
+    @Setup
+    public void setup() {
+        OpenCV.loadLocally();
+        Mat raw = Imgcodecs.imread(new File(System.getProperty("frames.dir"), frame).getPath());
+        if (raw.empty()) throw new IllegalStateException("Couldn't read frame " + frame);
+        input = new Mat();
+        Imgproc.resize(raw, input, new Size(320, 240));
+        Imgproc.cvtColor(input, input, Imgproc.COLOR_BGR2RGBA);
+        raw.release();
+
+        duckDetector = new DuckDetector();
+        tseDetector = new TseDetector();
+        duckDetector.setPreviewEnabled(preview);
+        tseDetector.setPreviewEnabled(preview);
+    }
+
+    @Benchmark
+    public Mat duckDetector() {
+        return duckDetector.processFrame(input);
+    }
+
+    @Benchmark
+    public Mat tseDetector() {
+        return tseDetector.processFrame(input);
+    }
+
+}
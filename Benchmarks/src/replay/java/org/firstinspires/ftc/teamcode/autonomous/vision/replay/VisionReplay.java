@@ -0,0 +1,229 @@
+package org.firstinspires.ftc.teamcode.autonomous.vision.replay;
+
+import com.z3db0y.susanalib.LatencyHistogram;
+
+import org.firstinspires.ftc.teamcode.autonomous.vision.RegionPipeline;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+import org.opencv.videoio.VideoCapture;
+import org.openftc.easyopencv.OpenCvPipeline;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import nu.pattern.OpenCV;
+
+// Runs a pipeline over recorded frames on the desktop and reports how fast it was and what it decided:
+//
+//      ./gradlew -p Benchmarks replay -Pargs="--pipeline DuckDetector --frames <dir> --labels <file>"
+//
+// --pipeline   an OpenCvPipeline with a no-argument constructor, simple names are looked up in the vision package
+// --frames     a directory of .jpg/.png stills, each one judged on its own
+// --video      a video file instead, its frames run in order like a live camera so detectors can vote across them
+// --labels     lines of "<file name or frame index> <LOCATION>", '#' starts a comment. Unlabelled frames are only timed
+// --size       frame size handed to the pipeline, 320x240 by default like the autos stream
+// --warmup     passes over the first frame before timing starts, so the JIT has settled, 20 by default
+// --verbose    print every frame's decision
+// RegionPipelines also get their per-stage timings printed.
+public class VisionReplay {
+
+    static private final String VISION_PACKAGE = "org.firstinspires.ftc.teamcode.autonomous.vision.";
+
+    static private class Frame {
+        final String name;
+        final Mat mat;
+
+        Frame(String name, Mat mat) {
+            this.name = name;
+            this.mat = mat;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArgs(args);
+        if (!options.containsKey("pipeline") || (options.containsKey("frames") == options.containsKey("video"))) {
+            System.err.println("usage: VisionReplay --pipeline <class> (--frames <dir> | --video <file>) [--labels <file>] [--size 320x240] [--warmup 20] [--verbose]");
+            System.exit(2);
+        }
+        OpenCV.loadLocally();
+
+        String[] size = options.getOrDefault("size", "320x240").split("x");
+        Size frameSize = new Size(Integer.parseInt(size[0]), Integer.parseInt(size[1]));
+        boolean video = options.containsKey("video");
+        List<Frame> frames = video ? readVideo(new File(options.get("video")), frameSize) : readStills(new File(options.get("frames")), frameSize);
+        if (frames.isEmpty()) throw new IllegalArgumentException("No frames found");
+        Map<String, String> labels = options.containsKey("labels") ? readLabels(new File(options.get("labels"))) : new HashMap<>();
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "20"));
+        boolean verbose = options.containsKey("verbose");
+
+        OpenCvPipeline pipeline = createPipeline(options.get("pipeline"));
+        Method getLocation = findGetLocation(pipeline);
+        for (int i = 0; i < warmup; i++) {
+            pipeline.processFrame(frames.get(0).mat);
+        }
+        if (pipeline instanceof RegionPipeline) {
+            ((RegionPipeline) pipeline).resetVotes();
+            ((RegionPipeline) pipeline).resetTimings();
+        }
+
+        long[] latencies = new long[frames.size()];
+        int labelled = 0;
+        int correct = 0;
+        Map<String, int[]> confusion = new HashMap<>();
+        long wallStart = System.nanoTime();
+        for (int i = 0; i < frames.size(); i++) {
+            Frame frame = frames.get(i);
+            // Stills are unrelated pictures, a vote carried over from the previous one would only hide mistakes.
+            if (!video && pipeline instanceof RegionPipeline) ((RegionPipeline) pipeline).resetVotes();
+            long start = System.nanoTime();
+            pipeline.processFrame(frame.mat);
+            latencies[i] = System.nanoTime() - start;
+
+            String decided = getLocation == null ? null : String.valueOf(getLocation.invoke(pipeline));
+            String expected = labels.get(frame.name);
+            if (expected != null && decided != null) {
+                labelled++;
+                if (expected.equalsIgnoreCase(decided)) correct++;
+                confusion.computeIfAbsent(expected + " -> " + decided, k -> new int[1])[0]++;
+            }
+            if (verbose) {
+                System.out.printf("%-24s %8.3f ms  %-8s%s%n", frame.name, latencies[i] / 1e6, decided,
+                        expected == null ? "" : expected.equalsIgnoreCase(decided) ? "" : "  expected " + expected);
+            }
+        }
+        double wallSeconds = (System.nanoTime() - wallStart) / 1e9;
+
+        Arrays.sort(latencies);
+        long total = 0;
+        for (long latency : latencies) {
+            total += latency;
+        }
+        System.out.printf("%s over %d frames (%s)%n", pipeline.getClass().getSimpleName(), frames.size(), video ? "video" : "stills");
+        System.out.printf("latency ms   mean %.3f  p50 %.3f  p90 %.3f  p99 %.3f  max %.3f%n",
+                total / 1e6 / latencies.length, percentile(latencies, 50), percentile(latencies, 90), percentile(latencies, 99), latencies[latencies.length - 1] / 1e6);
+        System.out.printf("throughput   %.1f frames/s in processFrame, %.1f frames/s wall clock%n",
+                latencies.length / (total / 1e9), latencies.length / wallSeconds);
+        if (getLocation == null) {
+            System.out.println("accuracy     pipeline has no getLocation()");
+        } else if (labelled == 0) {
+            System.out.println("accuracy     no labelled frames");
+        } else {
+            System.out.printf("accuracy     %d / %d (%.1f%%)%n", correct, labelled, 100.0 * correct / labelled);
+            List<String> keys = new ArrayList<>(confusion.keySet());
+            keys.sort(null);
+            for (String key : keys) {
+                System.out.printf("             %-20s %d%n", key, confusion.get(key)[0]);
+            }
+        }
+        // The pipeline's own stage histograms, bucket bounds rather than exact percentiles.
+        if (pipeline instanceof RegionPipeline) {
+            System.out.println("stages ms    p50 / p99 / max");
+            for (RegionPipeline.Stage stage : RegionPipeline.Stage.values()) {
+                LatencyHistogram histogram = ((RegionPipeline) pipeline).getStageTimes(stage);
+                System.out.printf("             %-10s %.3f / %.3f / %.3f%n", stage,
+                        histogram.getPercentileMillis(50), histogram.getPercentileMillis(99), histogram.getMaxMillis());
+            }
+        }
+    }
+
+    static private Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) throw new IllegalArgumentException("Unexpected argument " + args[i]);
+            String key = args[i].substring(2);
+            if (i + 1 < args.length && !args[i + 1].startsWith("--")) options.put(key, args[++i]);
+            else options.put(key, "");
+        }
+        return options;
+    }
+
+    static private OpenCvPipeline createPipeline(String name) throws ReflectiveOperationException {
+        Class<?> type;
+        try {
+            type = Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            type = Class.forName(VISION_PACKAGE + name);
+        }
+        return (OpenCvPipeline) type.getConstructor().newInstance();
+    }
+
+    static private Method findGetLocation(OpenCvPipeline pipeline) {
+        try {
+            return pipeline.getClass().getMethod("getLocation");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    // Same preparation as VisionBenchmark: scaled to the stream size and converted to the RGBA the webcam delivers.
+    static private Mat prepare(Mat raw, Size size) {
+        Mat frame = new Mat();
+        Imgproc.resize(raw, frame, size);
+        Imgproc.cvtColor(frame, frame, Imgproc.COLOR_BGR2RGBA);
+        return frame;
+    }
+
+    static private List<Frame> readStills(File directory, Size size) {
+        File[] files = directory.listFiles((dir, name) -> {
+            String lower = name.toLowerCase();
+            return lower.endsWith(".jpg") || lower.endsWith(".jpeg") || lower.endsWith(".png");
+        });
+        if (files == null) throw new IllegalArgumentException("Not a directory: " + directory);
+        Arrays.sort(files);
+        List<Frame> frames = new ArrayList<>();
+        for (File file : files) {
+            Mat raw = Imgcodecs.imread(file.getPath());
+            if (raw.empty()) {
+                System.err.println("Skipping unreadable " + file.getName());
+                continue;
+            }
+            frames.add(new Frame(file.getName(), prepare(raw, size)));
+            raw.release();
+        }
+        return frames;
+    }
+
+    static private List<Frame> readVideo(File file, Size size) {
+        VideoCapture capture = new VideoCapture(file.getPath());
+        if (!capture.isOpened()) throw new IllegalArgumentException("Couldn't open video " + file);
+        List<Frame> frames = new ArrayList<>();
+        Mat raw = new Mat();
+        while (capture.read(raw)) {
+            frames.add(new Frame(String.valueOf(frames.size()), prepare(raw, size)));
+        }
+        raw.release();
+        capture.release();
+        return frames;
+    }
+
+    static private Map<String, String> readLabels(File file) throws IOException {
+        Map<String, String> labels = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int comment = line.indexOf('#');
+                if (comment >= 0) line = line.substring(0, comment);
+                String[] parts = line.trim().split("\\s+");
+                if (parts.length == 2) labels.put(parts[0], parts[1]);
+            }
+        }
+        return labels;
+    }
+
+    // Nearest rank on the sorted latencies, in ms.
+    static private double percentile(long[] sorted, double percent) {
+        int rank = (int) Math.ceil(percent / 100 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))] / 1e6;
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.z3db0y.susanalib.sim;
+
+import com.z3db0y.susanalib.MecanumDriveTrain;
+import com.z3db0y.susanalib.MotionScheduler;
+import com.z3db0y.susanalib.Motor;
+import com.z3db0y.susanalib.Path;
+
+// Drives MecanumDriveTrain through MotionScheduler on a SimRobot and checks where the robot ends up after every move:
+//
+//      ./gradlew -p Benchmarks simulate
+//
+// Each move runs once on plain powers and once through the motor feedforward. Distances and angles are compared
+// by size only, so the check doesn't depend on the sign conventions of either side. Exits with 1 if a move is off.
+public class DriveSimulation {
+
+    static double distanceTolerance = 3;
+    // Paths only track their wheel positions and heading, and the blends cut the corners, so they end up a little further off.
+    static double pathTolerance = 5;
+    static double angleTolerance = 6;
+
+    SimRobot robot;
+    MecanumDriveTrain driveTrain;
+    int failures = 0;
+
+    DriveSimulation(boolean feedforward) {
+        robot = new SimRobot();
+        MotionScheduler.clear();
+        Motor frontLeft = new Motor(robot.hardwareMap, "frontLeft");
+        Motor frontRight = new Motor(robot.hardwareMap, "frontRight");
+        Motor backLeft = new Motor(robot.hardwareMap, "backLeft");
+        Motor backRight = new Motor(robot.hardwareMap, "backRight");
+        backLeft.setDirection(Motor.Direction.REVERSE);
+        frontRight.setDirection(Motor.Direction.REVERSE);
+        driveTrain = new MecanumDriveTrain(frontLeft, frontRight, backLeft, backRight, robot.imu);
+        // Paths size their rotations by the turn radius, it has to be the sim's or every turn comes out short.
+        driveTrain.turnRadius = robot.trackRadius;
+        // The sim has no friction and reaches its free speed at the nominal 12V.
+        if (feedforward) driveTrain.setFeedforward(0, 12 / robot.frontLeft.freeSpeed, 0);
+    }
+
+    // Runs one move and compares how far the robot went and turned with what was asked.
+    private void check(String name, double distance, double degrees, Runnable move) {
+        check(name, distance, degrees, distanceTolerance, move);
+    }
+
+    private void check(String name, double distance, double degrees, double tolerance, Runnable move) {
+        double x = robot.getX();
+        double y = robot.getY();
+        double heading = robot.getHeadingRadians();
+        double start = robot.clock.getSeconds();
+        move.run();
+        robot.sync();
+        double moved = Math.hypot(robot.getX() - x, robot.getY() - y);
+        double turned = Math.toDegrees(Math.abs(wrap(robot.getHeadingRadians() - heading)));
+        boolean ok = Math.abs(moved - distance) <= tolerance && Math.abs(turned - degrees) <= angleTolerance;
+        if (!ok) failures++;
+        System.out.printf("  %-32s %6.1f cm (want %5.1f)  %6.1f deg (want %5.1f)  %5.2f s  %s%n",
+                name, moved, distance, turned, degrees, robot.clock.getSeconds() - start, ok ? "ok" : "OFF");
+    }
+
+    static private double wrap(double radians) {
+        return Math.atan2(Math.sin(radians), Math.cos(radians));
+    }
+
+    int run() {
+        check("driveCM(60)", 60, 0, () -> driveTrain.driveCM(60, 1));
+        check("strafeCM(LEFT, 30)", 30, 0, () -> driveTrain.strafeCM(MecanumDriveTrain.Side.LEFT, 30, 1));
+        check("turn(90)", 0, 90, () -> driveTrain.turn(90, 0.8, 1));
+        check("turn(0)", 0, 90, () -> driveTrain.turn(0, 0.8, 1));
+        // The opening of the blue Left autonomous, ending 15 cm forward and 76 cm to the side, facing the start heading.
+        check("followPath(15, -90, 76, 0)", Math.hypot(15, 76), 0, pathTolerance,
+                () -> driveTrain.followPath(new Path().straight(15).turnTo(-90).straight(76).turnTo(0), 1));
+        MotionScheduler.clear();
+        robot.close();
+        return failures;
+    }
+
+    public static void main(String[] args) {
+        int failures = 0;
+        System.out.println("Plain power:");
+        failures += new DriveSimulation(false).run();
+        System.out.println("Motor feedforward:");
+        failures += new DriveSimulation(true).run();
+        System.out.println(failures == 0 ? "All moves within tolerance" : failures + " move(s) off");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+}
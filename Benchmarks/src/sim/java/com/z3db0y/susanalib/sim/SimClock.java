@@ -0,0 +1,28 @@
+package com.z3db0y.susanalib.sim;
+
+import com.z3db0y.susanalib.Clock;
+
+public class SimClock implements Clock.Source {
+
+    private long now = 0;
+
+    @Override
+    public long nanoTime() {
+        return now;
+    }
+
+    // Sleeping costs no real time, the clock just jumps to the deadline.
+    @Override
+    public void sleepUntil(long deadline) {
+        if (deadline > now) now = deadline;
+    }
+
+    public void advance(long nanos) {
+        now += nanos;
+    }
+
+    public double getSeconds() {
+        return now / 1e9;
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.z3db0y.susanalib.sim;
+
+import com.qualcomm.robotcore.hardware.DistanceSensor;
+
+import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
+
+public class SimDistanceSensor implements DistanceSensor {
+
+    public interface Source {
+        double cm();
+    }
+
+    private final SimRobot robot;
+    private final String name;
+    public Source source;
+
+    SimDistanceSensor(SimRobot robot, String name, Source source) {
+        this.robot = robot;
+        this.name = name;
+        this.source = source;
+    }
+
+    @Override
+    public double getDistance(DistanceUnit unit) {
+        robot.readI2c();
+        return unit.fromCm(source.cm());
+    }
+
+    @Override
+    public Manufacturer getManufacturer() {
+        return Manufacturer.Other;
+    }
+
+    @Override
+    public String getDeviceName() {
+        return "Simulated Distance Sensor";
+    }
+
+    @Override
+    public String getConnectionInfo() {
+        return "sim:" + name;
+    }
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    @Override
+    public void resetDeviceConfigurationForOpMode() {}
+
+    @Override
+    public void close() {}
+
+}
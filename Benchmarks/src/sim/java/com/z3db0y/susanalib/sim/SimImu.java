@@ -0,0 +1,180 @@
+package com.z3db0y.susanalib.sim;
+
+import com.qualcomm.hardware.bosch.BNO055IMU;
+
+import org.firstinspires.ftc.robotcore.external.navigation.Acceleration;
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.AngularVelocity;
+import org.firstinspires.ftc.robotcore.external.navigation.AxesOrder;
+import org.firstinspires.ftc.robotcore.external.navigation.AxesReference;
+import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.MagneticFlux;
+import org.firstinspires.ftc.robotcore.external.navigation.Orientation;
+import org.firstinspires.ftc.robotcore.external.navigation.Position;
+import org.firstinspires.ftc.robotcore.external.navigation.Quaternion;
+import org.firstinspires.ftc.robotcore.external.navigation.Temperature;
+import org.firstinspires.ftc.robotcore.external.navigation.Velocity;
+
+// Heading follows the simulated chassis, counter-clockwise positive like the real BNO055 driver.
+public class SimImu implements BNO055IMU {
+
+    private final SimRobot robot;
+    private Parameters parameters = new Parameters();
+
+    SimImu(SimRobot robot) {
+        this.robot = robot;
+    }
+
+    private long now() {
+        return robot.clock.nanoTime();
+    }
+
+    @Override
+    public boolean initialize(Parameters parameters) {
+        this.parameters = parameters;
+        return true;
+    }
+
+    @Override
+    public Parameters getParameters() {
+        return parameters;
+    }
+
+    @Override
+    public void close() {}
+
+    @Override
+    public Orientation getAngularOrientation() {
+        return getAngularOrientation(AxesReference.INTRINSIC, AxesOrder.ZYX, parameters.angleUnit.toAngleUnit());
+    }
+
+    @Override
+    public Orientation getAngularOrientation(AxesReference reference, AxesOrder order, AngleUnit angleUnit) {
+        robot.readI2c();
+        float heading = (float) angleUnit.fromRadians(AngleUnit.normalizeRadians(robot.getHeadingRadians()));
+        return new Orientation(AxesReference.INTRINSIC, AxesOrder.ZYX, angleUnit, heading, 0, 0, now())
+                .toAxesReference(reference).toAxesOrder(order);
+    }
+
+    @Override
+    public Acceleration getOverallAcceleration() {
+        return getAcceleration();
+    }
+
+    @Override
+    public AngularVelocity getAngularVelocity() {
+        robot.readI2c();
+        AngleUnit unit = parameters.angleUnit.toAngleUnit();
+        return new AngularVelocity(unit, 0, 0, (float) unit.fromRadians(robot.getAngularVelocity()), now());
+    }
+
+    @Override
+    public Acceleration getLinearAcceleration() {
+        robot.readI2c();
+        return new Acceleration(DistanceUnit.METER, 0, 0, 0, now());
+    }
+
+    @Override
+    public Acceleration getGravity() {
+        robot.readI2c();
+        return new Acceleration(DistanceUnit.METER, 0, 0, 9.81, now());
+    }
+
+    @Override
+    public Temperature getTemperature() {
+        return new Temperature();
+    }
+
+    @Override
+    public MagneticFlux getMagneticFieldStrength() {
+        return new MagneticFlux();
+    }
+
+    @Override
+    public Quaternion getQuaternionOrientation() {
+        robot.readI2c();
+        double half = robot.getHeadingRadians() / 2;
+        return new Quaternion((float) Math.cos(half), 0, 0, (float) Math.sin(half), now());
+    }
+
+    @Override
+    public Position getPosition() {
+        return new Position();
+    }
+
+    @Override
+    public Velocity getVelocity() {
+        return new Velocity();
+    }
+
+    @Override
+    public Acceleration getAcceleration() {
+        return getGravity();
+    }
+
+    @Override
+    public void startAccelerationIntegration(Position initialPosition, Velocity initialVelocity, int msPollInterval) {}
+
+    @Override
+    public void stopAccelerationIntegration() {}
+
+    @Override
+    public SystemStatus getSystemStatus() {
+        return SystemStatus.RUNNING_FUSION;
+    }
+
+    @Override
+    public SystemError getSystemError() {
+        return SystemError.NO_ERROR;
+    }
+
+    @Override
+    public CalibrationStatus getCalibrationStatus() {
+        return new CalibrationStatus(0xFF);
+    }
+
+    @Override
+    public boolean isSystemCalibrated() {
+        return true;
+    }
+
+    @Override
+    public boolean isGyroCalibrated() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccelerometerCalibrated() {
+        return true;
+    }
+
+    @Override
+    public boolean isMagnetometerCalibrated() {
+        return true;
+    }
+
+    @Override
+    public CalibrationData readCalibrationData() {
+        return new CalibrationData();
+    }
+
+    @Override
+    public void writeCalibrationData(CalibrationData data) {}
+
+    @Override
+    public byte read8(Register register) {
+        return 0;
+    }
+
+    @Override
+    public byte[] read(Register register, int cb) {
+        return new byte[cb];
+    }
+
+    @Override
+    public void write8(Register register, int bVal) {}
+
+    @Override
+    public void write(Register register, byte[] data) {}
+
+}
@@ -0,0 +1,290 @@
+package com.z3db0y.susanalib.sim;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.DcMotorController;
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+import com.qualcomm.robotcore.hardware.PIDCoefficients;
+import com.qualcomm.robotcore.hardware.PIDFCoefficients;
+import com.qualcomm.robotcore.hardware.configuration.typecontainers.MotorConfigurationType;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.CurrentUnit;
+
+public class SimMotor implements DcMotorEx {
+
+    private final SimRobot robot;
+    private final String name;
+
+    // First order model: velocity approaches power * freeSpeed with the given time constants.
+    public double ticksPerRev = 28;
+    public double freeSpeed = 2800;
+    public double timeConstant = 0.08;
+    public double coastTimeConstant = 0.5;
+    public double positionGain = 0.01;
+    public boolean blocked = false;
+
+    private double position = 0;
+    private double velocity = 0;
+    private double power = 0;
+    private int targetPosition = 0;
+    private int targetTolerance = 5;
+    private boolean enabled = true;
+    private RunMode mode = RunMode.RUN_WITHOUT_ENCODER;
+    private ZeroPowerBehavior zeroPowerBehavior = ZeroPowerBehavior.FLOAT;
+    private Direction direction = Direction.FORWARD;
+    private MotorConfigurationType motorType = MotorConfigurationType.getUnspecifiedMotorType();
+
+    SimMotor(SimRobot robot, String name) {
+        this.robot = robot;
+        this.name = name;
+    }
+
+    void step(double dt) {
+        double command = power;
+        if (mode == RunMode.RUN_TO_POSITION) {
+            double limit = Math.abs(power);
+            command = Math.max(-limit, Math.min(limit, (targetPosition - position) * positionGain));
+        }
+        if (mode == RunMode.STOP_AND_RESET_ENCODER || !enabled) command = 0;
+        double tau = command == 0 && zeroPowerBehavior == ZeroPowerBehavior.FLOAT ? coastTimeConstant : timeConstant;
+        velocity += (command * freeSpeed - velocity) * (1 - Math.exp(-dt / tau));
+        if (blocked) velocity = 0;
+        position += velocity * dt;
+    }
+
+    // Raw shaft position and velocity in ticks, before the configured direction is applied.
+    double getShaftPosition() {
+        return position;
+    }
+
+    double getShaftVelocity() {
+        return velocity;
+    }
+
+    private int sign() {
+        return direction == Direction.REVERSE ? -1 : 1;
+    }
+
+    @Override
+    public void setPower(double power) {
+        robot.write();
+        this.power = Math.max(-1, Math.min(1, power)) * sign();
+    }
+
+    @Override
+    public double getPower() {
+        return power * sign();
+    }
+
+    @Override
+    public void setDirection(Direction direction) {
+        robot.write();
+        this.direction = direction;
+    }
+
+    @Override
+    public Direction getDirection() {
+        return direction;
+    }
+
+    @Override
+    public void setMode(RunMode mode) {
+        robot.write();
+        if (mode == RunMode.STOP_AND_RESET_ENCODER) {
+            position = 0;
+            power = 0;
+        }
+        this.mode = mode;
+    }
+
+    @Override
+    public RunMode getMode() {
+        return mode;
+    }
+
+    @Override
+    public void setTargetPosition(int position) {
+        robot.write();
+        this.targetPosition = position * sign();
+    }
+
+    @Override
+    public int getTargetPosition() {
+        return targetPosition * sign();
+    }
+
+    @Override
+    public boolean isBusy() {
+        robot.read();
+        return mode == RunMode.RUN_TO_POSITION && Math.abs(targetPosition - position) > targetTolerance;
+    }
+
+    @Override
+    public int getCurrentPosition() {
+        robot.read();
+        return (int) Math.round(position) * sign();
+    }
+
+    @Override
+    public double getVelocity() {
+        robot.read();
+        return velocity * sign();
+    }
+
+    @Override
+    public double getVelocity(AngleUnit unit) {
+        return unit.fromRadians(getVelocity() / ticksPerRev * 2 * Math.PI);
+    }
+
+    @Override
+    public void setVelocity(double angularRate) {
+        setPower(angularRate / freeSpeed);
+    }
+
+    @Override
+    public void setVelocity(double angularRate, AngleUnit unit) {
+        setVelocity(unit.toRadians(angularRate) / (2 * Math.PI) * ticksPerRev);
+    }
+
+    @Override
+    public void setZeroPowerBehavior(ZeroPowerBehavior zeroPowerBehavior) {
+        robot.write();
+        this.zeroPowerBehavior = zeroPowerBehavior;
+    }
+
+    @Override
+    public ZeroPowerBehavior getZeroPowerBehavior() {
+        return zeroPowerBehavior;
+    }
+
+    @Override
+    @Deprecated
+    public void setPowerFloat() {
+        setZeroPowerBehavior(ZeroPowerBehavior.FLOAT);
+        setPower(0);
+    }
+
+    @Override
+    public boolean getPowerFloat() {
+        return zeroPowerBehavior == ZeroPowerBehavior.FLOAT && power == 0;
+    }
+
+    @Override
+    public void setMotorEnable() {
+        enabled = true;
+    }
+
+    @Override
+    public void setMotorDisable() {
+        enabled = false;
+    }
+
+    @Override
+    public boolean isMotorEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setTargetPositionTolerance(int tolerance) {
+        this.targetTolerance = tolerance;
+    }
+
+    @Override
+    public int getTargetPositionTolerance() {
+        return targetTolerance;
+    }
+
+    @Override
+    @Deprecated
+    public void setPIDCoefficients(RunMode mode, PIDCoefficients pidCoefficients) {}
+
+    @Override
+    public void setPIDFCoefficients(RunMode mode, PIDFCoefficients pidfCoefficients) {}
+
+    @Override
+    public void setVelocityPIDFCoefficients(double p, double i, double d, double f) {}
+
+    @Override
+    public void setPositionPIDFCoefficients(double p) {
+        this.positionGain = p / 1000;
+    }
+
+    @Override
+    @Deprecated
+    public PIDCoefficients getPIDCoefficients(RunMode mode) {
+        return new PIDCoefficients();
+    }
+
+    @Override
+    public PIDFCoefficients getPIDFCoefficients(RunMode mode) {
+        return new PIDFCoefficients();
+    }
+
+    // Stall current of a REV HD Hex, scaled by how hard the motor is pushing against its speed.
+    @Override
+    public double getCurrent(CurrentUnit unit) {
+        double load = Math.abs(power) * (1 - Math.min(1, Math.abs(velocity) / freeSpeed));
+        double amps = 8.5 * load;
+        return unit == CurrentUnit.MILLIAMPS ? amps * 1000 : amps;
+    }
+
+    @Override
+    public double getCurrentAlert(CurrentUnit unit) {
+        return 0;
+    }
+
+    @Override
+    public void setCurrentAlert(double current, CurrentUnit unit) {}
+
+    @Override
+    public boolean isOverCurrent() {
+        return false;
+    }
+
+    @Override
+    public MotorConfigurationType getMotorType() {
+        return motorType;
+    }
+
+    @Override
+    public void setMotorType(MotorConfigurationType motorType) {
+        this.motorType = motorType;
+    }
+
+    @Override
+    public DcMotorController getController() {
+        return null;
+    }
+
+    @Override
+    public int getPortNumber() {
+        return 0;
+    }
+
+    @Override
+    public Manufacturer getManufacturer() {
+        return Manufacturer.Other;
+    }
+
+    @Override
+    public String getDeviceName() {
+        return "Simulated Motor";
+    }
+
+    @Override
+    public String getConnectionInfo() {
+        return "sim:" + name;
+    }
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    @Override
+    public void resetDeviceConfigurationForOpMode() {}
+
+    @Override
+    public void close() {}
+
+}
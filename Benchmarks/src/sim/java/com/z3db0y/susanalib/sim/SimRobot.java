@@ -0,0 +1,171 @@
+package com.z3db0y.susanalib.sim;
+
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.hardware.Gamepad;
+import com.qualcomm.robotcore.hardware.HardwareMap;
+import com.z3db0y.susanalib.Clock;
+
+// The team robot on virtual time: a mecanum chassis, arm, collector, duck spinner, IMU and sensors
+// registered under the same names as the real configuration. Every hardware access costs virtual time
+// like it would on the hub, and the physics catch up to the clock before each access.
+public class SimRobot {
+
+    public final SimClock clock = new SimClock();
+    public final HardwareMap hardwareMap = new HardwareMap(null);
+
+    public final SimMotor frontLeft = new SimMotor(this, "frontLeft");
+    public final SimMotor frontRight = new SimMotor(this, "frontRight");
+    public final SimMotor backLeft = new SimMotor(this, "backLeft");
+    public final SimMotor backRight = new SimMotor(this, "backRight");
+    public final SimMotor arm = new SimMotor(this, "arm");
+    public final SimMotor collector = new SimMotor(this, "collector");
+    public final SimMotor duckSpinner = new SimMotor(this, "duckSpinner");
+    public final SimImu imu = new SimImu(this);
+    public final SimDistanceSensor cargoDetector;
+    public final SimDistanceSensor backDistance;
+    public final SimTouchSensor armTouch;
+
+    // Chassis geometry in cm, same defaults as MecanumDriveTrain.
+    public double wheelRadius = 3.75;
+    public double ratio = 20;
+    public double trackRadius = 35;
+    // Which way each wheel (fl, fr, bl, br) rolls the robot forward for positive motor rotation.
+    public int[] wheelSigns = new int[]{-1, 1, 1, -1};
+
+    public long readNanos = 2_000_000;
+    public long writeNanos = 1_500_000;
+    public long i2cReadNanos = 6_000_000;
+    public long stepNanos = 1_000_000;
+
+    // Pose in cm and radians. x points forward from the back wall at the start.
+    private double x = 10;
+    private double y = 0;
+    private double heading = 0;
+    private double angularVelocity = 0;
+    private long lastStep = 0;
+    private int reads = 0;
+    private int writes = 0;
+
+    public SimRobot() {
+        cargoDetector = new SimDistanceSensor(this, "cargoDetector", () -> 20);
+        backDistance = new SimDistanceSensor(this, "backDistance", () -> Math.cos(heading) > 0.1 ? x / Math.cos(heading) : 819);
+        // The arm is raised with negative ticks and rests on its touch sensor at zero.
+        armTouch = new SimTouchSensor(this, "armTouch", () -> arm.getShaftPosition() >= -5);
+
+        hardwareMap.put("frontLeft", frontLeft);
+        hardwareMap.put("frontRight", frontRight);
+        hardwareMap.put("backLeft", backLeft);
+        hardwareMap.put("backRight", backRight);
+        hardwareMap.put("arm", arm);
+        hardwareMap.put("collector", collector);
+        hardwareMap.put("duckSpinner", duckSpinner);
+        hardwareMap.put("imu", imu);
+        hardwareMap.put("cargoDetector", cargoDetector);
+        hardwareMap.put("backDistance", backDistance);
+        hardwareMap.put("armTouch", armTouch);
+
+        Clock.setSource(clock);
+    }
+
+    // Hands time back to the real clock.
+    public void close() {
+        Clock.setSource(null);
+    }
+
+    // Runs a LinearOpMode on the calling thread against this robot, skipping the init phase. Interrupt the thread to stop it.
+    // There's no camera and the gamepads are left idle, so this is only good for Drive and the testing opmodes, and this build
+    // doesn't compile those, they have to be added to the sim source set first. Every autonomous opens the webcam through
+    // EasyOpenCV and fails here, DriveSimulation drives their moves directly instead.
+    public void run(LinearOpMode opMode) throws InterruptedException {
+        opMode.hardwareMap = hardwareMap;
+        opMode.telemetry = SimTelemetry.create();
+        opMode.gamepad1 = new Gamepad();
+        opMode.gamepad2 = new Gamepad();
+        opMode.start();
+        opMode.runOpMode();
+    }
+
+    void read() {
+        sync();
+        reads++;
+        clock.advance(readNanos);
+    }
+
+    void readI2c() {
+        sync();
+        reads++;
+        clock.advance(i2cReadNanos);
+    }
+
+    void write() {
+        sync();
+        writes++;
+        clock.advance(writeNanos);
+    }
+
+    // Integrates everything up to the current virtual time in fixed steps.
+    public void sync() {
+        double dt = stepNanos / 1e9;
+        while (clock.nanoTime() - lastStep >= stepNanos) {
+            step(dt);
+            lastStep += stepNanos;
+        }
+    }
+
+    private void step(double dt) {
+        frontLeft.step(dt);
+        frontRight.step(dt);
+        backLeft.step(dt);
+        backRight.step(dt);
+        arm.step(dt);
+        collector.step(dt);
+        duckSpinner.step(dt);
+
+        double cmPerTick = 2 * Math.PI * wheelRadius / (28 * ratio);
+        double fl = wheelSigns[0] * frontLeft.getShaftVelocity() * cmPerTick;
+        double fr = wheelSigns[1] * frontRight.getShaftVelocity() * cmPerTick;
+        double bl = wheelSigns[2] * backLeft.getShaftVelocity() * cmPerTick;
+        double br = wheelSigns[3] * backRight.getShaftVelocity() * cmPerTick;
+
+        // Mecanum forward kinematics, robot frame: forward, left, counter-clockwise.
+        double forward = (fl + fr + bl + br) / 4;
+        double left = (-fl + fr + bl - br) / 4;
+        angularVelocity = (-fl + fr - bl + br) / (4 * trackRadius);
+
+        heading += angularVelocity * dt;
+        x += (forward * Math.cos(heading) - left * Math.sin(heading)) * dt;
+        y += (forward * Math.sin(heading) + left * Math.cos(heading)) * dt;
+    }
+
+    public void setPose(double x, double y, double headingDegrees) {
+        sync();
+        this.x = x;
+        this.y = y;
+        this.heading = Math.toRadians(headingDegrees);
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public double getHeadingRadians() {
+        return heading;
+    }
+
+    public double getAngularVelocity() {
+        return angularVelocity;
+    }
+
+    public int getReads() {
+        return reads;
+    }
+
+    public int getWrites() {
+        return writes;
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.z3db0y.susanalib.sim;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+// A Telemetry that accepts everything and shows nothing, so opmodes can run without a Driver Station.
+public class SimTelemetry {
+
+    static private final InvocationHandler handler = new InvocationHandler() {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            Class<?> type = method.getReturnType();
+            if (type == boolean.class) return false;
+            if (type == int.class) return 0;
+            if (type == long.class) return 0L;
+            if (type == double.class) return 0.0;
+            if (type == float.class) return 0f;
+            if (type == String.class) return "";
+            // Chained calls like addData(...).setRetained(...) get another no-op of the right type.
+            if (type.isInterface()) return create(type);
+            return null;
+        }
+    };
+
+    static public Telemetry create() {
+        return create(Telemetry.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    static private <T> T create(Class<T> type) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+}
@@ -0,0 +1,58 @@
+package com.z3db0y.susanalib.sim;
+
+import com.qualcomm.robotcore.hardware.TouchSensor;
+
+public class SimTouchSensor implements TouchSensor {
+
+    public interface Source {
+        boolean pressed();
+    }
+
+    private final SimRobot robot;
+    private final String name;
+    public Source source;
+
+    SimTouchSensor(SimRobot robot, String name, Source source) {
+        this.robot = robot;
+        this.name = name;
+        this.source = source;
+    }
+
+    @Override
+    public double getValue() {
+        return isPressed() ? 1 : 0;
+    }
+
+    @Override
+    public boolean isPressed() {
+        robot.read();
+        return source.pressed();
+    }
+
+    @Override
+    public Manufacturer getManufacturer() {
+        return Manufacturer.Other;
+    }
+
+    @Override
+    public String getDeviceName() {
+        return "Simulated Touch Sensor";
+    }
+
+    @Override
+    public String getConnectionInfo() {
+        return "sim:" + name;
+    }
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    @Override
+    public void resetDeviceConfigurationForOpMode() {}
+
+    @Override
+    public void close() {}
+
+}
@@ -0,0 +1,57 @@
+package com.z3db0y.susanalib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class StallDetectorTest {
+
+    // Moves at 500 ticks/s for a second, then stalls at half power. Returns when the stall was reported in ms, or -1.
+    static private long detectStall(StallDetector detector, int loopMs) {
+        double position = 0;
+        for (long t = 0; t <= 3000; t += loopMs) {
+            boolean moving = t < 1000;
+            if (moving) position += 0.5 * loopMs;
+            if (detector.update(t * 1_000_000L, (int) position, moving ? 500 : 0, 0.5)) return t;
+        }
+        return -1;
+    }
+
+    // A fast loop used to keep samples too close together for the buffer to cover the window, so nothing was ever reported.
+    @Test
+    public void detectsStallAtEveryLoopPeriod() {
+        for (int loopMs = 1; loopMs <= 20; loopMs++) {
+            long detected = detectStall(new StallDetector(), loopMs);
+            assertTrue("loop " + loopMs + "ms reported at " + detected, detected >= 1250);
+            assertTrue("loop " + loopMs + "ms reported at " + detected, detected <= 1250 + 2 * 250 / 30 + 2 * loopMs);
+        }
+    }
+
+    @Test
+    public void movingIsNotStalled() {
+        StallDetector detector = new StallDetector();
+        for (long t = 0; t <= 2000; t += 5) {
+            assertFalse(detector.update(t * 1_000_000L, (int) (t / 2), 500, 0.5));
+        }
+    }
+
+    @Test
+    public void unpoweredIsNotStalled() {
+        StallDetector detector = new StallDetector();
+        for (long t = 0; t <= 2000; t += 5) {
+            assertFalse(detector.update(t * 1_000_000L, 0, 0, 0));
+        }
+    }
+
+    @Test
+    public void changingTheWindowKeepsDetecting() {
+        StallDetector detector = new StallDetector();
+        detector.setWindowMs(500);
+        assertEquals(500, detector.getWindowMs());
+        long detected = detectStall(detector, 2);
+        assertTrue("reported at " + detected, detected >= 1500 && detected <= 1540);
+    }
+
+}
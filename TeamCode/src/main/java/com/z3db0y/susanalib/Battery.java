@@ -0,0 +1,77 @@
+package com.z3db0y.susanalib;
+
+import com.qualcomm.robotcore.hardware.HardwareMap;
+import com.qualcomm.robotcore.hardware.VoltageSensor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class Battery {
+
+    static private final List<VoltageSensor> sensors = new ArrayList<>();
+    static private double filtered = Double.NaN;
+    static private long lastSample = 0;
+
+    // The voltage powers were tuned at, compensated motors get exactly their power at this voltage.
+    static public double nominalVoltage = 12;
+    // How fast the filtered reading follows the battery, in seconds. Long enough to ride out current spikes.
+    static public double filterTimeConstant = 0.5;
+    // Every voltage read is its own hub transaction, so they're spaced out.
+    static public long sampleIntervalMs = 50;
+    // Readings below this are taken as a glitch, not a battery that can still drive anything.
+    static public double minimumVoltage = 7;
+
+    // The sensors belong to this opmode's hardwareMap, call disable() when it ends so the next one doesn't read them.
+    static public void enable(HardwareMap hardwareMap) {
+        sensors.clear();
+        for (VoltageSensor sensor : hardwareMap.voltageSensor) {
+            sensors.add(sensor);
+        }
+        filtered = Double.NaN;
+        lastSample = 0;
+    }
+
+    static public void disable() {
+        sensors.clear();
+        filtered = Double.NaN;
+    }
+
+    static public boolean isEnabled() {
+        return !sensors.isEmpty();
+    }
+
+    // Low-pass filtered voltage, nominalVoltage until enabled.
+    static public double getVoltage() {
+        if (sensors.isEmpty()) return nominalVoltage;
+        long now = Clock.nanoTime();
+        if (Double.isNaN(filtered) || now - lastSample >= sampleIntervalMs * 1_000_000L) {
+            double reading = read();
+            if (reading >= minimumVoltage) {
+                if (Double.isNaN(filtered)) {
+                    filtered = reading;
+                } else {
+                    double dt = (now - lastSample) / 1e9;
+                    filtered += (reading - filtered) * (1 - Math.exp(-dt / filterTimeConstant));
+                }
+            }
+            lastSample = now;
+        }
+        return Double.isNaN(filtered) ? nominalVoltage : filtered;
+    }
+
+    // What a power tuned at nominalVoltage has to be multiplied by to get the same output now.
+    static public double getCompensation() {
+        return nominalVoltage / getVoltage();
+    }
+
+    // Every hub sees the same battery, the lowest reading is the one closest to what the motors get.
+    static private double read() {
+        double lowest = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < sensors.size(); i++) {
+            double voltage = sensors.get(i).getVoltage();
+            if (voltage > 0) lowest = Math.min(lowest, voltage);
+        }
+        return lowest == Double.POSITIVE_INFINITY ? 0 : lowest;
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.z3db0y.susanalib;
+
+import com.qualcomm.hardware.lynx.LynxModule;
+import com.qualcomm.robotcore.hardware.HardwareMap;
+
+import java.util.List;
+
+public class BulkRead {
+
+    static private List<LynxModule> hubs;
+    static private long cycle = 0;
+
+    // Puts every hub in MANUAL bulk caching mode, see ConceptMotorBulkRead.
+    // Once enabled, clear() has to be called exactly once per control cycle or Motor reads will go stale.
+    // The mode outlives the opmode, so call disable() when it ends or the next opmode's reads freeze.
+    static public void enable(HardwareMap hardwareMap) {
+        hubs = hardwareMap.getAll(LynxModule.class);
+        for (LynxModule hub : hubs) {
+            hub.setBulkCachingMode(LynxModule.BulkCachingMode.MANUAL);
+            hub.clearBulkCache();
+        }
+        cycle++;
+    }
+
+    static public void disable() {
+        if (hubs != null) {
+            for (LynxModule hub : hubs) {
+                hub.setBulkCachingMode(LynxModule.BulkCachingMode.OFF);
+            }
+        }
+        hubs = null;
+        cycle++;
+    }
+
+    static public boolean isEnabled() {
+        return hubs != null;
+    }
+
+    // Drops the current snapshot, the next Motor read of this cycle does a single bulk read per hub.
+    static public void clear() {
+        if (hubs == null) return;
+        for (int i = 0; i < hubs.size(); i++) {
+            hubs.get(i).clearBulkCache();
+        }
+        cycle++;
+    }
+
+    static public long getCycle() {
+        return cycle;
+    }
+
+}
@@ -0,0 +1,31 @@
+package com.z3db0y.susanalib;
+
+public class Clock {
+
+    // Everything in susanalib reads time through here so a simulation can run on virtual time.
+    public interface Source {
+        long nanoTime();
+
+        void sleepUntil(long deadline);
+    }
+
+    static private Source source;
+
+    static public void setSource(Source newSource) {
+        source = newSource;
+    }
+
+    static public boolean isVirtual() {
+        return source != null;
+    }
+
+    static public long nanoTime() {
+        return source == null ? System.nanoTime() : source.nanoTime();
+    }
+
+    static public void sleepUntil(long deadline) {
+        if (source == null) Thread.sleepUntil(deadline);
+        else source.sleepUntil(deadline);
+    }
+
+}
@@ -0,0 +1,143 @@
+package com.z3db0y.susanalib;
+
+import com.qualcomm.hardware.bosch.BNO055IMU;
+
+import org.firstinspires.ftc.robotcore.external.navigation.Acceleration;
+import org.firstinspires.ftc.robotcore.external.navigation.Orientation;
+
+import java.lang.Thread;
+import java.util.concurrent.locks.LockSupport;
+
+// Polls the IMU on its own thread so the control loop never waits on I2C, it only picks up the latest sample.
+// The sampler thread is the only writer. Each sample is an immutable object published through a volatile field,
+// so readers get a consistent orientation and acceleration without locking.
+public class ImuSampler {
+
+    static public class Sample {
+        // Clock.nanoTime() just after the read, angles in the IMU's angle unit, acceleration in its accel unit.
+        public final long time;
+        public final long sequence;
+        public final double firstAngle;
+        public final double secondAngle;
+        public final double thirdAngle;
+        public final double xAccel;
+        public final double yAccel;
+        public final double zAccel;
+        private final BNO055IMU imu;
+
+        Sample(BNO055IMU imu, long time, long sequence, Orientation orientation, Acceleration acceleration) {
+            this.imu = imu;
+            this.time = time;
+            this.sequence = sequence;
+            this.firstAngle = orientation.firstAngle;
+            this.secondAngle = orientation.secondAngle;
+            this.thirdAngle = orientation.thirdAngle;
+            this.xAccel = acceleration.xAccel;
+            this.yAccel = acceleration.yAccel;
+            this.zAccel = acceleration.zAccel;
+        }
+
+        public double getAgeSeconds() {
+            return (Clock.nanoTime() - time) / 1e9;
+        }
+    }
+
+    static private volatile BNO055IMU imu;
+    static private volatile Sample latest;
+    static private volatile long periodNanos = 10_000_000;
+    static private volatile boolean running = false;
+    static private long sequence = 0;
+    static private Thread sampler;
+
+    // Replaces any sampler a previous opmode left running. The first sample is read right away, so getLatest()
+    // never returns null after this. On virtual time there's no thread, the simulation is sampled on demand instead.
+    // Call stop() when the opmode ends, a leftover thread keeps polling a stale IMU and competes for the I2C bus.
+    static public synchronized void start(BNO055IMU newImu, double rateHz) {
+        stop();
+        imu = newImu;
+        sequence = 0;
+        setRate(rateHz);
+        sample(newImu);
+        if (Clock.isVirtual()) return;
+        running = true;
+        sampler = new Thread(ImuSampler::sampleLoop, "ImuSampler");
+        sampler.setDaemon(true);
+        sampler.start();
+    }
+
+    static public synchronized void stop() {
+        if (sampler != null) {
+            running = false;
+            LockSupport.unpark(sampler);
+            try {
+                sampler.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            sampler = null;
+        }
+        imu = null;
+        latest = null;
+    }
+
+    static public boolean isRunning() {
+        return running;
+    }
+
+    // True if the sampler is reading this IMU, threaded or on demand.
+    static public boolean isSampling(BNO055IMU device) {
+        return device != null && device == imu;
+    }
+
+    static public void setRate(double rateHz) {
+        periodNanos = (long) (1e9 / Math.max(1, rateHz));
+    }
+
+    static public double getRate() {
+        return 1e9 / periodNanos;
+    }
+
+    // Without a running thread (virtual time, or the thread lost the hardware) this reads the IMU itself.
+    // Null once stopped.
+    static public Sample getLatest() {
+        BNO055IMU device = imu;
+        if (!running && device != null) sample(device);
+        return latest;
+    }
+
+    // The latest sample of this IMU. When the sampler is stopped or busy with a different one, the IMU is read directly.
+    static public Sample getLatest(BNO055IMU device) {
+        Sample sample = isSampling(device) ? getLatest() : null;
+        if (sample != null && sample.imu == device) return sample;
+        return read(device, 0);
+    }
+
+    static private void sample(BNO055IMU device) {
+        latest = read(device, ++sequence);
+    }
+
+    static private Sample read(BNO055IMU device, long sequence) {
+        Orientation orientation = device.getAngularOrientation();
+        Acceleration acceleration = device.getLinearAcceleration();
+        return new Sample(device, Clock.nanoTime(), sequence, orientation, acceleration);
+    }
+
+    static private void sampleLoop() {
+        long next = System.nanoTime();
+        while (running) {
+            try {
+                sample(imu);
+            } catch (RuntimeException e) {
+                // The hardware map was closed under us, the opmode is gone.
+                running = false;
+                return;
+            }
+            next += periodNanos;
+            long remaining = next - System.nanoTime();
+            if (remaining > 0) LockSupport.parkNanos(remaining);
+            // Fell behind, a slow read shouldn't make the next ones burst.
+            else next = System.nanoTime();
+        }
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.z3db0y.susanalib;
+
+// Shapes one gamepad axis for driving: deadband, expo curve, a scale, then a slew-rate limit on the result.
+// Call update() once per loop, the slew limit is measured in Clock time between calls.
+public class InputShaper {
+
+    // Stick travel that's ignored, the rest is stretched back over [0, 1] so there's no jump at the edge.
+    public double deadband;
+    // 0 is linear, 1 is fully cubic. Anything between gives finer control around the center and the same full deflection.
+    public double expo;
+    // Most the output may change per second, <= 0 turns the limit off.
+    public double slewRate;
+
+    private double output = 0;
+    private long lastTime = -1;
+
+    public InputShaper(double deadband, double expo, double slewRate) {
+        this.deadband = deadband;
+        this.expo = expo;
+        this.slewRate = slewRate;
+    }
+
+    // Scale is applied after the curve, so power presets don't change how the stick feels, and before
+    // the slew limit, so switching presets ramps as well.
+    public double update(double raw, double scale) {
+        double magnitude = Math.min(1, Math.abs(raw));
+        magnitude = magnitude <= deadband ? 0 : (magnitude - deadband) / (1 - deadband);
+        magnitude = expo * magnitude * magnitude * magnitude + (1 - expo) * magnitude;
+        double target = Math.signum(raw) * magnitude * scale;
+
+        long now = Clock.nanoTime();
+        if (slewRate <= 0) {
+            output = target;
+        } else if (lastTime >= 0) {
+            double step = slewRate * (now - lastTime) / 1e9;
+            output += Math.max(-step, Math.min(step, target - output));
+        }
+        lastTime = now;
+        return output;
+    }
+
+    public double update(double raw) {
+        return update(raw, 1);
+    }
+
+    public double get() {
+        return output;
+    }
+
+    public void reset() {
+        output = 0;
+        lastTime = -1;
+    }
+
+}
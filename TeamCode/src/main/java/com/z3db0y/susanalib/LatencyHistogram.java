@@ -0,0 +1,85 @@
+package com.z3db0y.susanalib;
+
+import java.io.PrintWriter;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Counts durations into fixed buckets, so recording one is a few array operations and never allocates.
+// One thread records, any thread can read. Percentiles are the upper bound of the bucket they fall in.
+public class LatencyHistogram {
+
+    // Upper bucket bounds in microseconds, the last bucket takes everything slower.
+    static private final long[] BOUNDS_MICROS = {25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 25000, 50000, 100000};
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BOUNDS_MICROS.length + 1);
+    private volatile long count = 0;
+    private volatile long totalNanos = 0;
+    private volatile long maxNanos = 0;
+
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Only call this from one thread.
+    public void record(long nanos) {
+        long micros = nanos / 1000;
+        int bucket = 0;
+        while (bucket < BOUNDS_MICROS.length && micros > BOUNDS_MICROS[bucket]) bucket++;
+        counts.lazySet(bucket, counts.get(bucket) + 1);
+        totalNanos += nanos;
+        if (nanos > maxNanos) maxNanos = nanos;
+        count++;
+    }
+
+    // A sample recorded at the same moment may be lost or half counted.
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        count = 0;
+        totalNanos = 0;
+        maxNanos = 0;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMeanMillis() {
+        long n = count;
+        return n == 0 ? 0 : totalNanos / 1e6 / n;
+    }
+
+    public double getMaxMillis() {
+        return maxNanos / 1e6;
+    }
+
+    public double getPercentileMillis(double percent) {
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            total += counts.get(i);
+        }
+        if (total == 0) return 0;
+        long rank = (long) Math.ceil(percent / 100 * total);
+        long seen = 0;
+        for (int i = 0; i < BOUNDS_MICROS.length; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(BOUNDS_MICROS[i] / 1e3, getMaxMillis());
+        }
+        return getMaxMillis();
+    }
+
+    // One line per bucket with its upper bound in ms and its count.
+    public void write(PrintWriter out) {
+        out.printf("%s: %d samples, mean %.3f ms, max %.3f ms%n", name, count, getMeanMillis(), getMaxMillis());
+        for (int i = 0; i < BOUNDS_MICROS.length; i++) {
+            out.printf("  <= %s ms\t%d%n", BOUNDS_MICROS[i] / 1e3, counts.get(i));
+        }
+        out.printf("  >  %s ms\t%d%n", BOUNDS_MICROS[BOUNDS_MICROS.length - 1] / 1e3, counts.get(BOUNDS_MICROS.length));
+    }
+
+}
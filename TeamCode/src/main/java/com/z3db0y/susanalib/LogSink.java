@@ -0,0 +1,150 @@
+package com.z3db0y.susanalib;
+
+import android.util.Log;
+
+import java.lang.Thread;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Bounded ring of log entries, filled by the control thread and written to android.util.Log by a background thread.
+// Single producer, single consumer. Slots are reused StringBuilders, so offering an entry doesn't allocate once they've grown.
+public class LogSink {
+
+    public enum DropPolicy {
+        // Overwrite the oldest entry the writer hasn't picked up yet.
+        DROP_OLDEST,
+        // Keep what's queued and discard the entry being offered.
+        DROP_NEWEST
+    }
+
+    static private final long IDLE_PARK_NANOS = 5_000_000;
+    // Not -1, offer() compares against h - capacity, which is negative on the first lap.
+    static private final long NOT_READING = Long.MIN_VALUE;
+
+    private final String tag;
+    private final StringBuilder[] slots;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    // The entry the writer has claimed and is still copying out.
+    private volatile long reading = NOT_READING;
+    private final StringBuilder writeBuffer = new StringBuilder(1024);
+    private volatile DropPolicy policy;
+    private volatile boolean running = false;
+    private Thread writer;
+
+    public LogSink(String tag, int capacity, DropPolicy policy) {
+        this.tag = tag;
+        this.policy = policy;
+        this.slots = new StringBuilder[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new StringBuilder(1024);
+        }
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        writer = new Thread(this::drainLoop, "LogSink-" + tag);
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Stops the writer after it has written whatever is still queued.
+    public synchronized void stop() {
+        if (!running) return;
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer = null;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public void setDropPolicy(DropPolicy policy) {
+        this.policy = policy;
+    }
+
+    public DropPolicy getDropPolicy() {
+        return policy;
+    }
+
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    public int size() {
+        return (int) (head.get() - tail.get());
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public void resetDropped() {
+        dropped.set(0);
+    }
+
+    // Copies the entry into the next free slot and only then publishes it through head.
+    // Returns false if it was dropped, only call this from one thread.
+    public boolean offer(CharSequence entry) {
+        long h = head.get();
+        while (h - tail.get() >= slots.length) {
+            if (policy == DropPolicy.DROP_NEWEST) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            // Losing this race means the writer just freed a slot.
+            long t = h - slots.length;
+            if (tail.compareAndSet(t, t + 1)) dropped.incrementAndGet();
+        }
+        // The ring has room, but the freed slot may be the one the writer is still copying out of.
+        // That entry is already on its way out, so the one being offered goes instead.
+        if (reading == h - slots.length) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        StringBuilder slot = slots[(int) (h % slots.length)];
+        slot.setLength(0);
+        slot.append(entry);
+        head.set(h + 1);
+        return true;
+    }
+
+    // Claims the oldest published entry, then copies it. reading is set before the claim, so once offer() sees
+    // the freed slot it also sees that it's taken, and leaves it alone until the copy is done.
+    private boolean poll(StringBuilder out) {
+        while (true) {
+            long t = tail.get();
+            if (t == head.get()) return false;
+            reading = t;
+            if (tail.compareAndSet(t, t + 1)) {
+                out.setLength(0);
+                out.append(slots[(int) (t % slots.length)]);
+                reading = NOT_READING;
+                return true;
+            }
+            // offer() dropped it first, try the next one.
+            reading = NOT_READING;
+        }
+    }
+
+    private void drainLoop() {
+        while (true) {
+            boolean wrote = false;
+            while (poll(writeBuffer)) {
+                Log.i(tag, writeBuffer.toString());
+                wrote = true;
+            }
+            if (!running) return;
+            if (!wrote) LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+    }
+
+}
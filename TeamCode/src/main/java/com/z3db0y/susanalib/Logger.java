@@ -1,56 +1,272 @@
 package com.z3db0y.susanalib;
 
-import android.util.Log;
-
 import org.firstinspires.ftc.robotcore.external.Telemetry;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.lang.Thread;
 
 public class Logger {
 
     static private Telemetry telemetry;
-    static private ArrayList<String> lines = new ArrayList<>();
+    static private final StringBuilder logBuffer = new StringBuilder(1024);
+    static private final StringBuilder messageBuffer = new StringBuilder(128);
+    static private final StringBuilder lineBuffer = new StringBuilder(256);
+    static private final HashMap<StackTraceElement, Tag> callerTags = new HashMap<>();
+    // Log output goes through here so the control thread never blocks on logcat.
+    static private final LogSink sink = new LogSink("SusanaLib", 64, LogSink.DropPolicy.DROP_OLDEST);
+    static private final ArrayList<Slot> slots = new ArrayList<>();
+    static private long nextTransmit = 0;
+    static private boolean transmitting = true;
+
+    // The Driver Station only redraws a few times a second. update() sends telemetry at most this often,
+    // in between lines only go to the log and slots aren't formatted.
+    static public long minTransmitIntervalMs = 100;
+
+    // Where a line came from, with its telemetry caption built once up front.
+    // Logging through a Tag skips the stack walk, and the label/value variants format into a reused buffer.
+    public static final class Tag {
+        private final String name;
+        private final String caption;
+
+        private Tag(String name) {
+            this.name = name;
+            this.caption = "<span style='color: #ffaa00'>" + stripHTML(name) + "()</span>";
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void addData(Object message) {
+            if(telemetry == null) return;
+            addDataInternal(this, message.toString(), null);
+        }
+
+        public void addData(Object message, String color) {
+            if(telemetry == null) return;
+            addDataInternal(this, message.toString(), color);
+        }
+
+        public void addData(String label, long value) {
+            messageBuffer.setLength(0);
+            addDataInternal(this, messageBuffer.append(label).append(value), null);
+        }
+
+        public void addData(String label, double value) {
+            messageBuffer.setLength(0);
+            addDataInternal(this, messageBuffer.append(label).append(value), null);
+        }
+
+        public void addData(String label, boolean value) {
+            messageBuffer.setLength(0);
+            addDataInternal(this, messageBuffer.append(label).append(value), null);
+        }
+
+        // Finishes a line composed in Logger.buffer().
+        public void addBuffer() {
+            addDataInternal(this, messageBuffer, null);
+        }
+    }
+
+    // A telemetry line that stays on screen across updates, set by value every cycle.
+    // It's only formatted again when the value changed and telemetry is actually being sent.
+    public static final class Slot {
+        static private final int NONE = 0, LONG = 1, DOUBLE = 2, BOOLEAN = 3, OBJECT = 4;
+
+        private final Tag tag;
+        private final String label;
+        private Telemetry.Item item;
+        private boolean dirty = true;
+        private int kind = NONE;
+        private long longValue;
+        private double doubleValue;
+        private boolean booleanValue;
+        private Object objectValue;
+
+        private Slot(Tag tag, String label) {
+            this.tag = tag;
+            this.label = label;
+        }
+
+        public void set(long value) {
+            if(kind == LONG && longValue == value) return;
+            kind = LONG;
+            longValue = value;
+            dirty = true;
+        }
+
+        public void set(double value) {
+            if(kind == DOUBLE && Double.compare(doubleValue, value) == 0) return;
+            kind = DOUBLE;
+            doubleValue = value;
+            dirty = true;
+        }
+
+        public void set(boolean value) {
+            if(kind == BOOLEAN && booleanValue == value) return;
+            kind = BOOLEAN;
+            booleanValue = value;
+            dirty = true;
+        }
+
+        public void set(Object value) {
+            if(kind == OBJECT && (value == null ? objectValue == null : value.equals(objectValue))) return;
+            kind = OBJECT;
+            objectValue = value;
+            dirty = true;
+        }
+
+        private void flush() {
+            if(!dirty) return;
+            messageBuffer.setLength(0);
+            messageBuffer.append(label);
+            switch (kind) {
+                case LONG: messageBuffer.append(longValue); break;
+                case DOUBLE: messageBuffer.append(doubleValue); break;
+                case BOOLEAN: messageBuffer.append(booleanValue); break;
+                case OBJECT: messageBuffer.append(objectValue); break;
+            }
+            lineBuffer.setLength(0);
+            lineBuffer.append("<span style='color: #ffffff'>");
+            appendEscaped(lineBuffer, messageBuffer);
+            lineBuffer.append("</span>");
+            if(item == null) item = telemetry.addData(tag.caption, lineBuffer.toString()).setRetained(true);
+            else item.setValue(lineBuffer.toString());
+            dirty = false;
+        }
+    }
+
+    // Slots belong to the opmode that registers them, setTelemetry() drops them all so nothing stale carries over
+    // into the next opmode. Register them after it, once per run. One without a value shows just its label.
+    static public Slot slot(Tag tag, String label) {
+        Slot slot = new Slot(tag, label);
+        slots.add(slot);
+        return slot;
+    }
+
+    static public void removeSlot(Slot slot) {
+        slots.remove(slot);
+        if(slot.item != null && telemetry != null) telemetry.removeItem(slot.item);
+        slot.item = null;
+    }
+
+    static public Tag tag(String name) {
+        return new Tag(name);
+    }
+
+    // Resolves the calling class and method once, meant for static final fields.
+    static public Tag callerTag() {
+        StackTraceElement caller = findCaller();
+        return tag(caller.getMethodName().startsWith("<") ? simpleName(caller) : simpleName(caller) + "." + caller.getMethodName());
+    }
 
     static public void setTelemetry(Telemetry tele) {
         telemetry = tele;
         telemetry.setDisplayFormat(Telemetry.DisplayFormat.HTML);
+        // The previous opmode's slots and their items went with its telemetry.
+        slots.clear();
+        nextTransmit = 0;
+        transmitting = true;
+        sink.start();
+    }
+
+    // Overflow policy and the dropped entry count live here.
+    static public LogSink getSink() {
+        return sink;
     }
 
     static private String stripHTML(Object str) {
-        return str.toString()
-                .replaceAll("<", "&lt;")
-                .replaceAll(">", "&gt;")
-                .replaceAll(" ", "&nbsp;")
-                .replaceAll("\"", "&quot;")
-                .replaceAll("'", "&apos;");
+        StringBuilder builder = new StringBuilder();
+        appendEscaped(builder, str.toString());
+        return builder.toString();
     }
 
-    static private void addDataInternal(Object message, String color, String caller) {
+    static private void appendEscaped(StringBuilder builder, CharSequence str) {
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            switch (c) {
+                case '<': builder.append("&lt;"); break;
+                case '>': builder.append("&gt;"); break;
+                case ' ': builder.append("&nbsp;"); break;
+                case '"': builder.append("&quot;"); break;
+                case '\'': builder.append("&apos;"); break;
+                default: builder.append(c);
+            }
+        }
+    }
+
+    static private StackTraceElement findCaller() {
+        StackTraceElement[] stack = Thread.currentThread().getStackTrace();
+        for (StackTraceElement element : stack) {
+            String className = element.getClassName();
+            if (className.equals(Logger.class.getName()) || className.equals(Thread.class.getName()) || className.startsWith("dalvik.system.")) continue;
+            return element;
+        }
+        return stack[stack.length - 1];
+    }
+
+    static private String simpleName(StackTraceElement element) {
+        String className = element.getClassName();
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    static private Tag resolveCaller() {
+        StackTraceElement caller = findCaller();
+        Tag tag = callerTags.get(caller);
+        if (tag == null) {
+            tag = tag(simpleName(caller) + "." + caller.getMethodName());
+            callerTags.put(caller, tag);
+        }
+        return tag;
+    }
+
+    static private void addDataInternal(Tag tag, CharSequence message, String color) {
         if(color == null) color = "#ffffff";
         if(telemetry != null) {
-            lines.add(caller + "() " + message);
-            telemetry.addData("<span style='color: #ffaa00'>" + caller + "()</span>", "<span style='color: " + color + "'>" + stripHTML(message) + "</span>");
+            logBuffer.append(tag.name).append("() ").append(message).append('\n');
+            if(!transmitting) return;
+            lineBuffer.setLength(0);
+            lineBuffer.append("<span style='color: ").append(color).append("'>");
+            appendEscaped(lineBuffer, message);
+            lineBuffer.append("</span>");
+            telemetry.addData(tag.caption, lineBuffer.toString());
         }
     }
 
+    // The untagged calls walk the stack to find their caller every time, fine for one-off lines.
+    // Anything logged every loop goes through a Tag or a Slot.
     static public void addData(Object message, String color) {
-        StackTraceElement stackTraceElement = Thread.currentThread().getStackTrace()[3];
-        addDataInternal(message, color, stackTraceElement.getClassName().split("\\.")[stackTraceElement.getClassName().split("\\.").length-1] + "." + stackTraceElement.getMethodName());
+        if(telemetry == null) return;
+        addDataInternal(resolveCaller(), message.toString(), color);
     }
 
     static public void addData(Object message) {
-        StackTraceElement stackTraceElement = Thread.currentThread().getStackTrace()[3];
-        addDataInternal(message, null, stackTraceElement.getClassName().split("\\.")[stackTraceElement.getClassName().split("\\.").length-1] + "." + stackTraceElement.getMethodName());
+        if(telemetry == null) return;
+        addDataInternal(resolveCaller(), message.toString(), null);
+    }
+
+    // Shared buffer for composing a line without string concatenation, finish it with Tag.addBuffer().
+    static public StringBuilder buffer() {
+        messageBuffer.setLength(0);
+        return messageBuffer;
     }
 
     static public void update() {
         if(telemetry != null) {
-            for(String line : lines) {
-                Log.i("SusanaLib", line);
+            if(logBuffer.length() > 0) {
+                logBuffer.setLength(logBuffer.length() - 1);
+                sink.offer(logBuffer);
+                logBuffer.setLength(0);
+            }
+            if(transmitting) {
+                for (int i = 0; i < slots.size(); i++) {
+                    slots.get(i).flush();
+                }
+                telemetry.update();
+                nextTransmit = Clock.nanoTime() + minTransmitIntervalMs * 1_000_000;
             }
-            lines = new ArrayList<>();
-            telemetry.update();
+            transmitting = Clock.nanoTime() >= nextTransmit;
         }
     }
 
@@ -0,0 +1,57 @@
+package com.z3db0y.susanalib;
+
+public class LoopTimer {
+
+    private final long periodNanos;
+    private long deadline;
+    private long cycleStart;
+    private long lastLoopNanos = 0;
+    private long cycles = 0;
+    private int overruns = 0;
+
+    public LoopTimer(double hz) {
+        this.periodNanos = (long) (1e9 / hz);
+        start();
+    }
+
+    public void start() {
+        cycleStart = Clock.nanoTime();
+        deadline = cycleStart + periodNanos;
+    }
+
+    // Call at the end of every loop iteration. Sleeps until the next period boundary and returns true,
+    // or returns false straight away if this iteration already ran past it.
+    public boolean waitForNext() {
+        long now = Clock.nanoTime();
+        lastLoopNanos = now - cycleStart;
+        cycles++;
+        boolean onTime = now < deadline;
+        if (onTime) {
+            Clock.sleepUntil(deadline);
+            deadline += periodNanos;
+        } else {
+            // Start a fresh period instead of bursting through the missed ones.
+            overruns++;
+            deadline = now + periodNanos;
+        }
+        cycleStart = Clock.nanoTime();
+        return onTime;
+    }
+
+    public double getLastLoopMillis() {
+        return lastLoopNanos / 1e6;
+    }
+
+    public double getPeriodMillis() {
+        return periodNanos / 1e6;
+    }
+
+    public long getCycles() {
+        return cycles;
+    }
+
+    public int getOverruns() {
+        return overruns;
+    }
+
+}
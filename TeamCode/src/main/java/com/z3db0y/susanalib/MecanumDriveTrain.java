@@ -3,23 +3,57 @@ package com.z3db0y.susanalib;
 import com.qualcomm.hardware.bosch.BNO055IMU;
 import com.qualcomm.robotcore.hardware.DcMotor;
 
-import org.firstinspires.ftc.robotcore.external.navigation.Orientation;
-
 public class MecanumDriveTrain {
+    private static final Logger.Tag ENCODER_TAG = Logger.tag("MecanumDriveTrain.EncoderMove");
+    private static final Logger.Tag TURN_TAG = Logger.tag("MecanumDriveTrain.TurnMove");
+    private static final Logger.Tag PROFILE_TAG = Logger.tag("MecanumDriveTrain.ProfiledMove");
+    private static final Logger.Tag PATH_TAG = Logger.tag("MecanumDriveTrain.PathMove");
     Motor[] motors;
     public double turnThreshold = 4;
+    public double turnSettleSeconds = 0.15;
+    public double turnTimeoutSeconds = 3;
+    public double turnMinPower = 0.05;
+    // Output in power per degree of heading error, turn() caps it at the power it's given.
+    public final PIDController headingController = new PIDController(0.02, 0.002, 0.002);
     public double ratio = 20;
     public double wheelRadius = 3.75;
+    // Limits for the profiled cm moves in cm/s, cm/s^2 and cm/s^3, maxJerk <= 0 gives a trapezoidal profile.
+    public double maxVelocity = 100;
+    public double maxAcceleration = 120;
+    public double maxJerk = 600;
+    // Encoder velocity at full power, 6000 rpm * 28 ticks for a bare HD Hex motor.
+    // Only used while the motors have no kV, see setFeedforward().
+    public double motorMaxTicksPerSecond = 2800;
+    // Power per cm/s^2 of profile acceleration and per cm the robot lags behind the profile.
+    // kA likewise only applies without a motor model.
+    public double kA = 0.001;
+    public double kP = 0.03;
+    public double profileTolerance = 1;
+    public double profileSettleSeconds = 0.5;
+    // Wheel travel in cm per radian the robot turns, (track width + wheel base) / 2.
+    public double turnRadius = 21;
+    // Paths cross-fade between segments over this many cm of wheel travel instead of turning corners sharply.
+    public double pathBlendDistance = 10;
+    // Power per degree the robot's heading drifts from the path.
+    public double pathHeadingKP = 0.01;
     BNO055IMU imu;
-    double lastStallCheck = 0;
-    double lastVelocity = 0;
-    
+    public final StallDetector stallDetector = new StallDetector();
+    MotionCommand activeCommand;
+    public final MecanumOdometry odometry = new MecanumOdometry(this);
+    private final int[] stallPositions = new int[4];
+    private final double[] wheelPowers = new double[4];
+    private final double[] orientation = new double[3];
+    private long orientationCycle = -1;
+    private int stallTravel = 0;
+
     private void init(Motor frontLeft, Motor frontRight, Motor backLeft, Motor backRight, BNO055IMU imu) {
         this.motors = new Motor[]{frontLeft, frontRight, backLeft, backRight};
         for (Motor motor : motors) {
             motor.resetEncoder();
         }
         this.imu = imu;
+        // Moves never reset the encoders after this, so the pose carries over from one move to the next.
+        MotionScheduler.addPeriodic(odometry);
     }
 
     public MecanumDriveTrain(Motor frontLeft, Motor frontRight, Motor backLeft, Motor backRight, BNO055IMU imu) {
@@ -28,9 +62,36 @@ public class MecanumDriveTrain {
         init(frontLeft, frontRight, backLeft, backRight, imu);
     }
 
+    // Voltage feedforward for all four wheels in volts, volts per tick/s and volts per tick/s^2, see Motor.setVelocity().
+    // With kV set the profiled moves and paths run open loop through it and cap their speed at what the battery can hold.
+    public void setFeedforward(double kS, double kV, double kA) {
+        for (Motor motor : motors) {
+            motor.kS = kS;
+            motor.kV = kV;
+            motor.kA = kA;
+        }
+    }
+
+    // Fastest wheel speed the motors can hold right now in cm/s, unlimited without a motor model.
+    private double maxWheelVelocity() {
+        double max = Double.POSITIVE_INFINITY;
+        for (Motor motor : motors) {
+            max = Math.min(max, motor.getMaxVelocity() / ticksPerCm());
+        }
+        return max;
+    }
+
+    // Drives a wheel at a profile velocity and acceleration in cm/s and cm/s^2, plus a feedback power, in setPower()'s sign.
+    private void driveWheel(Motor motor, double velocity, double acceleration, double feedback) {
+        if (motor.hasFeedforward()) {
+            motor.setVelocity(velocity * ticksPerCm(), acceleration * ticksPerCm(), feedback);
+        } else {
+            motor.setPower(velocity / (motorMaxTicksPerSecond / ticksPerCm()) + kA * acceleration + feedback);
+        }
+    }
+
     public void resetStallDetector() {
-        lastStallCheck = 0;
-        lastVelocity = 0;
+        stallDetector.reset();
     }
 
     public void setPower(double frPower, double flPower, double brPower, double blPower) {
@@ -45,88 +106,369 @@ public class MecanumDriveTrain {
         this.setPower(power, power, power, power);
     }
 
+    // Averages the wheels into one sample, so call it every cycle while the drivetrain should be moving.
+    // Position is the distance the wheels have rolled, since the encoders aren't zeroed at the start of a move.
     public boolean isStalled() {
-        if (lastStallCheck == 0) lastStallCheck = System.currentTimeMillis();
+        int travel = 0;
         double velocity = 0;
-        for (Motor motor : motors) {
+        double power = 0;
+        for (int i = 0; i < motors.length; i++) {
+            Motor motor = motors[i];
+            int position = motor.getCurrentPosition();
+            travel += Math.abs(position - stallPositions[i]);
+            stallPositions[i] = position;
             velocity += Math.abs(motor.getVelocity());
+            power += Math.abs(motor.getPower());
         }
-        velocity /= motors.length;
-        Logger.addData("Velocity: " + velocity);
-        Logger.addData("Last velocity: " + lastVelocity);
-        boolean stalled = false;
-        double totalPower = 0;
-        for (Motor motor : motors) {
-            totalPower += Math.abs(motor.getPower());
+        stallTravel += travel / motors.length;
+        return stallDetector.update(Clock.nanoTime(), stallTravel, velocity / motors.length, power / motors.length);
+    }
+
+    public void driveRobotCentric(double forwardPower, double sidePower, double strafePower) {
+        wheelPowers[0] = forwardPower - sidePower - strafePower * 0.9; // front left
+        wheelPowers[1] = forwardPower + sidePower + strafePower * 0.9; // front right
+        wheelPowers[2] = forwardPower - sidePower * 0.6 + strafePower; // back left
+        wheelPowers[3] = forwardPower + sidePower * 0.6 - strafePower; // back right
+        // Scale all four down together when one is over 1, clipping them separately would change the direction.
+        double max = 1;
+        for (double power : wheelPowers) {
+            max = Math.max(max, Math.abs(power));
+        }
+        for (int i = 0; i < motors.length; i++) {
+            motors[i].setPower(wheelPowers[i] / max);
+        }
+    }
+
+    // Same inputs as driveRobotCentric, but forward and strafe are relative to the field heading of the odometry.
+    // Needs MotionScheduler.update() every loop to keep the heading current.
+    public void driveFieldCentric(double forwardPower, double sidePower, double strafePower) {
+        double heading = Math.toRadians(odometry.getHeading());
+        double cos = Math.cos(heading);
+        double sin = Math.sin(heading);
+        // Forward is negative power and strafing right positive, so flip into forward/left before rotating.
+        double forward = -forwardPower;
+        double left = -strafePower;
+        double robotForward = forward * cos + left * sin;
+        double robotLeft = -forward * sin + left * cos;
+        driveRobotCentric(-robotForward, sidePower, -robotLeft);
+    }
+
+    // Makes the direction the robot is facing now the field's forward, for turns and paths as well.
+    public void resetHeading() {
+        odometry.setPose(odometry.getX(), odometry.getY(), 0);
+    }
+
+    private MotionCommand scheduleMotion(MotionCommand command) {
+        // Only one motion can own the wheels at a time.
+        if (activeCommand != null) activeCommand.cancel();
+        activeCommand = command;
+        return MotionScheduler.schedule(command);
+    }
+
+    // Moves every wheel by relativeTicks, scaled by its sign and the motor direction.
+    private class EncoderMove extends MotionCommand {
+        final int[] signs;
+        final int relativeTicks;
+        final double power;
+        final int[] startPositions = new int[4];
+        final int[] targetPositions = new int[4];
+
+        EncoderMove(int[] signs, int relativeTicks, double power) {
+            this.signs = signs;
+            this.relativeTicks = relativeTicks;
+            this.power = power;
         }
-        if (System.currentTimeMillis() - lastStallCheck > 1000) {
-            if (Math.abs(velocity - lastVelocity) == 0 && Math.abs(velocity) < 15 && totalPower != 0) {
-                stalled = true;
+
+        @Override
+        protected void start() {
+            stallDetector.reset();
+
+            release();
+            runOnEncoders();
+
+            for (int i = 0; i < targetPositions.length; i++) {
+                Motor motor = motors[i];
+                startPositions[i] = motor.getCurrentPosition();
+                targetPositions[i] = startPositions[i] + (signs[i] * relativeTicks * motor.getDirection().getMultiplier());
+                motor.setTargetPosition(targetPositions[i]);
+                motor.setRunMode(DcMotor.RunMode.RUN_TO_POSITION);
+                motor.setPower(power);
+            }
+        }
+
+        @Override
+        protected State update() {
+            int remaining = 0;
+            for (int i = 0; i < motors.length; i++) {
+                if (Math.abs(motors[i].getCurrentPosition() - startPositions[i]) < Math.abs(relativeTicks)) remaining++;
             }
-            lastVelocity = velocity;
-            this.resetStallDetector();
+            if (remaining == 0) return State.FINISHED;
+            if (isStalled()) return State.STALLED;
+            Logger.buffer().append("Front left: ").append(motors[0].getCurrentPosition()).append(" / ").append(motors[0].getTargetPosition());
+            ENCODER_TAG.addBuffer();
+            Logger.buffer().append("Front right: ").append(motors[1].getCurrentPosition()).append(" / ").append(motors[1].getTargetPosition());
+            ENCODER_TAG.addBuffer();
+            Logger.buffer().append("Back left: ").append(motors[2].getCurrentPosition()).append(" / ").append(motors[2].getTargetPosition());
+            ENCODER_TAG.addBuffer();
+            Logger.buffer().append("Back right: ").append(motors[3].getCurrentPosition()).append(" / ").append(motors[3].getTargetPosition());
+            ENCODER_TAG.addBuffer();
+            return State.RUNNING;
+        }
+
+        @Override
+        protected void end(State state) {
+            hold();
         }
-        return stalled;
     }
 
-    public void driveRobotCentric(double forwardPower, double sidePower, double strafePower) {
-        motors[0].setPower(forwardPower - sidePower - strafePower * 0.9); // front left
-        motors[1].setPower(forwardPower + sidePower + strafePower * 0.9); // front right
-        motors[2].setPower(forwardPower - sidePower * 0.6 + strafePower); // back left
-        motors[3].setPower(forwardPower + sidePower * 0.6 - strafePower); // back right
+    // Follows a motion profile with velocity and acceleration feedforward plus a proportional term on the position error.
+    // With a motor model the wheels run open loop on battery-compensated volts, without one in RUN_USING_ENCODER,
+    // where the hub's velocity loop closes the gap between power and speed.
+    private class ProfiledMove extends MotionCommand {
+        final int[] signs;
+        final MotionProfile profile;
+        final int[] startPositions = new int[4];
+        long startTime;
+
+        ProfiledMove(int[] signs, double cm, double power) {
+            this.signs = signs;
+            this.profile = new MotionProfile(cm, Math.min(maxVelocity * Math.min(1, Math.abs(power)), maxWheelVelocity()), maxAcceleration, maxJerk);
+        }
+
+        @Override
+        protected void start() {
+            stallDetector.reset();
+
+            release();
+            runOnEncoders();
+            for (int i = 0; i < motors.length; i++) {
+                startPositions[i] = motors[i].getCurrentPosition();
+            }
+            startTime = Clock.nanoTime();
+        }
+
+        // Distance covered along the move in cm, averaged over the wheels.
+        private double progress() {
+            double ticks = 0;
+            for (int i = 0; i < motors.length; i++) {
+                ticks += (motors[i].getCurrentPosition() - startPositions[i]) * signs[i] * motors[i].getDirection().getMultiplier();
+            }
+            return ticks / motors.length / ticksPerCm();
+        }
+
+        @Override
+        protected State update() {
+            double t = (Clock.nanoTime() - startTime) / 1e9;
+            profile.sample(t);
+            double error = profile.position - progress();
+            if (t >= profile.getDuration() && (Math.abs(error) <= profileTolerance || t >= profile.getDuration() + profileSettleSeconds)) {
+                return State.FINISHED;
+            }
+            if (isStalled()) return State.STALLED;
+
+            for (int i = 0; i < motors.length; i++) {
+                driveWheel(motors[i], signs[i] * profile.velocity, signs[i] * profile.acceleration, signs[i] * kP * error);
+            }
+            Logger.buffer().append("Profile: ").append(profile.position).append(" / Error: ").append(error);
+            PROFILE_TAG.addBuffer();
+            return State.RUNNING;
+        }
+
+        @Override
+        protected void end(State state) {
+            hold();
+        }
     }
 
-    public void drive(int relativeTicks, double power) {
-        lastStallCheck = 0;
-        
-        release();
-        resetEncoders();
-        runOnEncoders();
+    // Follows a Path as one motion profile over the travel of the fastest wheel, so speed carries through the segment boundaries.
+    // Each wheel tracks its own expected position, and odometry heading feedback corrects for slip.
+    private class PathMove extends MotionCommand {
+        final Path path;
+        final double power;
+        // Per segment: unit wheel-space direction (forward, left, rotation in wheel cm) and where it ends along the path.
+        final double[][] directions;
+        final double[] ends;
+        // Heading change in degrees per cm of path, per segment.
+        final double[] headingRates;
+        final int[] startPositions = new int[4];
+        final double[] expected = new double[4];
+        final double[] direction = new double[3];
+        final double[] feedback = new double[4];
+        MotionProfile profile;
+        double expectedHeading;
+        double lastPosition;
+        long startTime;
+
+        PathMove(Path path, double power) {
+            this.path = path;
+            this.power = power;
+            this.directions = new double[path.size()][3];
+            this.ends = new double[path.size()];
+            this.headingRates = new double[path.size()];
+        }
 
-        int[] targetPositions = new int[]{
-                motors[0].getCurrentPosition() - (relativeTicks * motors[0].getDirection().getMultiplier()),
-                motors[1].getCurrentPosition() - (relativeTicks * motors[1].getDirection().getMultiplier()),
-                motors[2].getCurrentPosition() - (relativeTicks * motors[2].getDirection().getMultiplier()),
-                motors[3].getCurrentPosition() - (relativeTicks * motors[3].getDirection().getMultiplier())
-        };
+        @Override
+        protected void start() {
+            stallDetector.reset();
+
+            release();
+            runOnEncoders();
+
+            // Absolute turns depend on where the robot is facing when the path starts.
+            double heading = odometry.getHeading();
+            double length = 0;
+            for (int k = 0; k < directions.length; k++) {
+                Path.Segment segment = path.segments.get(k);
+                double rotation = segment.rotation;
+                double segmentLength = segment.length;
+                if (segment.type == Path.ABSOLUTE) {
+                    double delta = MecanumOdometry.wrapDegrees(segment.length - heading);
+                    rotation = Math.signum(delta);
+                    segmentLength = Math.abs(delta);
+                    heading = segment.length;
+                } else {
+                    heading += rotation * segmentLength;
+                }
+                double rotationCm = Math.toRadians(rotation) * turnRadius;
+                double norm = Math.abs(segment.forward) + Math.abs(segment.left) + Math.abs(rotationCm);
+                if (norm == 0) norm = 1;
+                directions[k][0] = segment.forward / norm;
+                directions[k][1] = segment.left / norm;
+                directions[k][2] = rotationCm / norm;
+                headingRates[k] = rotation / norm;
+                length += segmentLength * norm;
+                ends[k] = length;
+            }
 
-        for (int i = 0; i < targetPositions.length; i++) {
-            Motor motor = motors[i];
-            motor.setTargetPosition(targetPositions[i]);
-            motor.setRunMode(DcMotor.RunMode.RUN_TO_POSITION);
-            motor.setPower(power);
+            // Every wheel component is at most 1, so the fastest wheel never outruns the profile.
+            profile = new MotionProfile(length, Math.min(maxVelocity * Math.min(1, Math.abs(power)), maxWheelVelocity()), maxAcceleration, maxJerk);
+            for (int i = 0; i < motors.length; i++) {
+                startPositions[i] = motors[i].getCurrentPosition();
+                expected[i] = 0;
+            }
+            expectedHeading = odometry.getHeading();
+            lastPosition = 0;
+            startTime = Clock.nanoTime();
         }
-        while (
-                (Math.abs(motors[0].getCurrentPosition()) < Math.abs(targetPositions[0]) ||
-                        Math.abs(motors[1].getCurrentPosition()) < Math.abs(targetPositions[1]) ||
-                        Math.abs(motors[2].getCurrentPosition()) < Math.abs(targetPositions[2]) ||
-                        Math.abs(motors[3].getCurrentPosition()) < Math.abs(targetPositions[3])) &&
-                        !isStalled()
-        ) {
-            Logger.addData("Front left: " + motors[0].getCurrentPosition() + " / " + motors[0].getTargetPosition());
-            Logger.addData("Front right: " + motors[1].getCurrentPosition() + " / " + motors[1].getTargetPosition());
-            Logger.addData("Back left: " + motors[2].getCurrentPosition() + " / " + motors[2].getTargetPosition());
-            Logger.addData("Back right: " + motors[3].getCurrentPosition() + " / " + motors[3].getTargetPosition());
-            Logger.update();
+
+        // Direction at the given distance along the path, blended linearly across pathBlendDistance around each boundary.
+        // Returns the heading rate at that point.
+        private double directionAt(double s) {
+            int k = 0;
+            while (k < ends.length - 1 && s > ends[k]) k++;
+            double rate = headingRates[k];
+            for (int j = 0; j < 3; j++) direction[j] = directions[k][j];
+            double half = pathBlendDistance / 2;
+            if (half <= 0) return rate;
+            double weight = 0;
+            int other = -1;
+            if (k < ends.length - 1 && s > ends[k] - half) {
+                other = k + 1;
+                weight = (s - (ends[k] - half)) / pathBlendDistance;
+            } else if (k > 0 && s < ends[k - 1] + half) {
+                other = k - 1;
+                weight = ((ends[k - 1] + half) - s) / pathBlendDistance;
+            }
+            if (other < 0) return rate;
+            for (int j = 0; j < 3; j++) direction[j] += (directions[other][j] - direction[j]) * weight;
+            return rate + (headingRates[other] - rate) * weight;
         }
 
-        hold();
+        // Wheel component of the current direction, in the forward-positive convention of MecanumOdometry.
+        private double wheel(int i) {
+            double f = direction[0], l = direction[1], w = direction[2];
+            switch (i) {
+                case 0: return f - l - w;
+                case 1: return f + l + w;
+                case 2: return f + l - w;
+                default: return f - l + w;
+            }
+        }
+
+        @Override
+        protected State update() {
+            if (directions.length == 0) return State.FINISHED;
+            double t = (Clock.nanoTime() - startTime) / 1e9;
+            profile.sample(t);
+
+            // Integrate the expected wheel travel over this cycle using the direction halfway through it.
+            double ds = profile.position - lastPosition;
+            expectedHeading += directionAt(lastPosition + ds / 2) * ds;
+            for (int i = 0; i < motors.length; i++) expected[i] += wheel(i) * ds;
+            lastPosition = profile.position;
+
+            directionAt(profile.position);
+            double headingCorrection = pathHeadingKP * MecanumOdometry.wrapDegrees(expectedHeading - odometry.getHeading());
+            double maxError = 0;
+            for (int i = 0; i < motors.length; i++) {
+                Motor motor = motors[i];
+                double actual = -(motor.getCurrentPosition() - startPositions[i]) * motor.getDirection().getMultiplier() / ticksPerCm();
+                double error = expected[i] - actual;
+                maxError = Math.max(maxError, Math.abs(error));
+                double rotationSign = i % 2 == 0 ? -1 : 1;
+                feedback[i] = kP * error + rotationSign * headingCorrection;
+            }
+            if (t >= profile.getDuration() && (maxError <= profileTolerance || t >= profile.getDuration() + profileSettleSeconds)) {
+                return State.FINISHED;
+            }
+            if (isStalled()) return State.STALLED;
+
+            // Forward is negative power in software.
+            for (int i = 0; i < motors.length; i++) {
+                driveWheel(motors[i], -wheel(i) * profile.velocity, -wheel(i) * profile.acceleration, -feedback[i]);
+            }
+            Logger.buffer().append("Path: ").append(profile.position).append(" / ").append(profile.getDistance()).append(" / Error: ").append(maxError);
+            PATH_TAG.addBuffer();
+            return State.RUNNING;
+        }
+
+        @Override
+        protected void end(State state) {
+            hold();
+        }
     }
 
-    private double normalizeAngle(double angle) {
-        if (angle < -180) return -180;
-        if (angle > 180) return 180;
-        return angle;
+    public MotionCommand followPathAsync(Path path, double power) {
+        return scheduleMotion(new PathMove(path, power));
+    }
+
+    public void followPath(Path path, double power) {
+        MotionScheduler.await(followPathAsync(path, power));
+    }
+
+    public MotionCommand driveAsync(int relativeTicks, double power) {
+        return scheduleMotion(new EncoderMove(new int[]{-1, -1, -1, -1}, relativeTicks, power));
+    }
+
+    public void drive(int relativeTicks, double power) {
+        MotionScheduler.await(driveAsync(relativeTicks, power));
     }
 
     public void resetEncoders() {
         for (Motor motor : motors) {
             motor.resetEncoder();
         }
+        for (int i = 0; i < motors.length; i++) {
+            stallPositions[i] = 0;
+        }
+        odometry.resync();
+    }
+
+    public int cmToTicks(int cm) {
+        return (int) ((cm / (wheelRadius * Math.PI * 2)) * (28 * ratio));
     }
 
+    double ticksPerCm() {
+        return 28 * ratio / (wheelRadius * Math.PI * 2);
+    }
+
+    // The cm moves are profiled, power scales maxVelocity.
     public void driveCM(int cm, double power) {
-        this.drive((int) ((cm / (wheelRadius * Math.PI * 2)) * (28 * ratio)), power);
+        MotionScheduler.await(driveCMAsync(cm, power));
+    }
+
+    public MotionCommand driveCMAsync(int cm, double power) {
+        return scheduleMotion(new ProfiledMove(new int[]{-1, -1, -1, -1}, cm, power));
     }
 
     public enum Side {
@@ -144,57 +486,36 @@ public class MecanumDriveTrain {
     }
 
     public void strafeCM(Side side,int cm, double power) {
-        this.strafe(side, (int) ((cm / (wheelRadius * Math.PI * 2)) * (28 * ratio)), power);
+        MotionScheduler.await(strafeCMAsync(side, cm, power));
     }
 
-    public void strafe(Side side, int relativeTicks, double power) {
-        lastStallCheck = 0;
-
-        release();
-        resetEncoders();
-        runOnEncoders();
-
-        int[] targetPositions = new int[]{
-                motors[0].getCurrentPosition() + (side.getMultiplier() * relativeTicks * motors[0].getDirection().getMultiplier()),
-                motors[1].getCurrentPosition() - (side.getMultiplier() * relativeTicks * motors[1].getDirection().getMultiplier()),
-                motors[2].getCurrentPosition() - (side.getMultiplier() * relativeTicks * motors[2].getDirection().getMultiplier()),
-                motors[3].getCurrentPosition() + (side.getMultiplier() * relativeTicks * motors[3].getDirection().getMultiplier())
-        };
+    public MotionCommand strafeCMAsync(Side side, int cm, double power) {
+        int m = side.getMultiplier();
+        return scheduleMotion(new ProfiledMove(new int[]{m, -m, -m, m}, cm, power));
+    }
 
-        for (int i = 0; i < targetPositions.length; i++) {
-            Motor motor = motors[i];
-            motor.setTargetPosition(targetPositions[i]);
-            motor.setRunMode(DcMotor.RunMode.RUN_TO_POSITION);
-            motor.setPower(power);
-        }
-        while (
-                (Math.abs(motors[0].getCurrentPosition()) < Math.abs(targetPositions[0]) ||
-                        Math.abs(motors[1].getCurrentPosition()) < Math.abs(targetPositions[1]) ||
-                        Math.abs(motors[2].getCurrentPosition()) < Math.abs(targetPositions[2]) ||
-                        Math.abs(motors[3].getCurrentPosition()) < Math.abs(targetPositions[3])) &&
-                        !isStalled()
-        ) {
-            Logger.addData("Front left: " + motors[0].getCurrentPosition() + " / " + motors[0].getTargetPosition());
-            Logger.addData("Front right: " + motors[1].getCurrentPosition() + " / " + motors[1].getTargetPosition());
-            Logger.addData("Back left: " + motors[2].getCurrentPosition() + " / " + motors[2].getTargetPosition());
-            Logger.addData("Back right: " + motors[3].getCurrentPosition() + " / " + motors[3].getTargetPosition());
-            Logger.update();
-        }
+    public MotionCommand strafeAsync(Side side, int relativeTicks, double power) {
+        int m = side.getMultiplier();
+        return scheduleMotion(new EncoderMove(new int[]{m, -m, -m, m}, relativeTicks, power));
+    }
 
-        hold();
+    public void strafe(Side side, int relativeTicks, double power) {
+        MotionScheduler.await(strafeAsync(side, relativeTicks, power));
     }
 
-    private double getCurrentAngle(int angle) {
-        Orientation angles = imu.getAngularOrientation();
-        switch (angle) {
-            case 1:
-                return angles.firstAngle;
-            case 2:
-                return angles.secondAngle;
-            case 3:
-                return angles.thirdAngle;
+    // The IMU is read at most once per BulkRead cycle and shared by odometry, turns and field-centric driving.
+    // With ImuSampler running on this IMU the cycle takes its latest sample instead of reading over I2C,
+    // otherwise, stopped or sampling another IMU, the sampler reads this one directly.
+    double getCurrentAngle(int angle) {
+        if (!BulkRead.isEnabled() || orientationCycle != BulkRead.getCycle()) {
+            ImuSampler.Sample sample = ImuSampler.getLatest(imu);
+            orientation[0] = sample.firstAngle;
+            orientation[1] = sample.secondAngle;
+            orientation[2] = sample.thirdAngle;
+            orientationCycle = BulkRead.getCycle();
         }
-        return 0;
+        if (angle < 1 || angle > 3) return 0;
+        return orientation[angle - 1];
     }
 
     public void runOnEncoders() {
@@ -217,40 +538,78 @@ public class MecanumDriveTrain {
         }
     }
 
-    public void turn(double targetAngle, double power, int angle) {
-        release();
-        resetEncoders();
-        runOnEncoders();
+    // Closed-loop turn on the heading error. It finishes once the error has stayed within turnThreshold
+    // for turnSettleSeconds, or reports TIMED_OUT after turnTimeoutSeconds.
+    // Yaw targets are odometry headings like Path.turnTo(), so resetHeading() and setPose() move both the same way.
+    // Pitch and roll are read from the IMU as is.
+    private class TurnMove extends MotionCommand {
+        final double targetAngle;
+        final double power;
+        final int angle;
+        long lastTime;
+        long settledSince;
+        long startTime;
+
+        TurnMove(double targetAngle, double power, int angle) {
+            this.targetAngle = MecanumOdometry.wrapDegrees(targetAngle);
+            this.power = power;
+            this.angle = angle;
+        }
 
-        double currentAngle;
-        if (targetAngle > 180) targetAngle -= 360;
-        targetAngle = normalizeAngle(targetAngle);
+        @Override
+        protected void start() {
+            release();
+            runOnEncoders();
 
-        double rangeMin = normalizeAngle(targetAngle + turnThreshold / 2);
-        double rangeMax = normalizeAngle(targetAngle - turnThreshold / 2);
+            headingController.reset();
+            startTime = Clock.nanoTime();
+            lastTime = startTime;
+            settledSince = -1;
+        }
 
-        double diff;
-        do {
-            currentAngle = getCurrentAngle(angle);
-            if (currentAngle == 180 && targetAngle < 0) currentAngle = -180;
+        @Override
+        protected State update() {
+            long now = Clock.nanoTime();
+            double currentAngle = angle == 1 ? odometry.getHeading() : getCurrentAngle(angle);
+            // Positive error means the target is counter-clockwise.
+            double error = MecanumOdometry.wrapDegrees(targetAngle - currentAngle);
+
+            if (Math.abs(error) <= turnThreshold) {
+                if (settledSince < 0) settledSince = now;
+                if (now - settledSince >= turnSettleSeconds * 1e9) return State.FINISHED;
+            } else {
+                settledSince = -1;
+            }
+            if (now - startTime >= turnTimeoutSeconds * 1e9) return State.TIMED_OUT;
 
-            double target360 = targetAngle < 0 ? targetAngle + 360 : targetAngle;
-            double current360 = currentAngle < 0 ? currentAngle + 360 : currentAngle;
-            double diff360 = current360 - target360;
-            int directionMultiplier = Math.abs(diff360) > 180 ? (diff360 > 0 ? 1 : -1) : (diff360 > 0 ? -1 : 1);
+            headingController.outputLimit = power;
+            double output = headingController.update(error, (now - lastTime) / 1e9);
+            lastTime = now;
+            // Not enough to move the robot at all, the last few degrees would never settle.
+            if (Math.abs(error) > turnThreshold && Math.abs(output) < turnMinPower) output = Math.copySign(turnMinPower, error);
 
-            diff = Math.abs(currentAngle - targetAngle);
-            Logger.addData("Tar: " + targetAngle + " / Curr: " + currentAngle + " / Diff: " + (targetAngle - currentAngle));
-            Logger.addData("Dir: " + directionMultiplier);
-            Logger.addData("Range Min: " + rangeMin);
-            Logger.addData("Range Max: " + rangeMax);
+            Logger.buffer().append("Tar: ").append(targetAngle).append(" / Curr: ").append(currentAngle).append(" / Err: ").append(error);
+            TURN_TAG.addBuffer();
+            TURN_TAG.addData("Output: ", output);
             for (int i = 0; i < motors.length; i++) {
-                if (i % 2 == 0) motors[i].setPower(power * directionMultiplier);
-                else motors[i].setPower(-power * directionMultiplier);
+                if (i % 2 == 0) motors[i].setPower(output);
+                else motors[i].setPower(-output);
             }
-            Logger.update();
-        } while (diff > turnThreshold);
+            return State.RUNNING;
+        }
+
+        @Override
+        protected void end(State state) {
+            hold();
+        }
+    }
+
+    public MotionCommand turnAsync(double targetAngle, double power, int angle) {
+        return scheduleMotion(new TurnMove(targetAngle, power, angle));
+    }
 
-        hold();
+    // Returns whether the turn timed out before settling on the heading.
+    public boolean turn(double targetAngle, double power, int angle) {
+        return MotionScheduler.await(turnAsync(targetAngle, power, angle)).wasTimedOut();
     }
 }
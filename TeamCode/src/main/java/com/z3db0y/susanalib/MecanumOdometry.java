@@ -0,0 +1,109 @@
+package com.z3db0y.susanalib;
+
+// Tracks the robot's field pose from wheel encoder deltas and the IMU heading, without ever resetting the encoders.
+// x points forward and y to the left of where the robot faced at setPose(), heading is CCW positive, in cm and degrees.
+public class MecanumOdometry implements Runnable {
+
+    private final MecanumDriveTrain driveTrain;
+    private final int[] lastPositions = new int[4];
+    private boolean initialized = false;
+    private double lastImuHeading;
+    private double x;
+    private double y;
+    private double heading;
+
+    // Mecanum rollers slip sideways, so a strafe covers less ground than the wheels turn. Tune on the field.
+    public double lateralMultiplier = 1;
+
+    public MecanumOdometry(MecanumDriveTrain driveTrain) {
+        this.driveTrain = driveTrain;
+    }
+
+    // Integrates one control cycle. MecanumDriveTrain registers this with MotionScheduler, so it runs before every motion update.
+    public void update() {
+        Motor[] motors = driveTrain.motors;
+        double imuHeading = driveTrain.getCurrentAngle(1);
+        if (!initialized) {
+            resync(imuHeading);
+            return;
+        }
+
+        // Wheel travel in cm, positive when the wheel pushes the robot forward.
+        double cmPerTick = 1 / driveTrain.ticksPerCm();
+        double fl = wheelDelta(motors[0], 0) * cmPerTick;
+        double fr = wheelDelta(motors[1], 1) * cmPerTick;
+        double bl = wheelDelta(motors[2], 2) * cmPerTick;
+        double br = wheelDelta(motors[3], 3) * cmPerTick;
+
+        double forward = (fl + fr + bl + br) / 4;
+        double left = (-fl + fr + bl - br) / 4 * lateralMultiplier;
+
+        double headingDelta = wrapDegrees(imuHeading - lastImuHeading);
+        lastImuHeading = imuHeading;
+
+        // Rotate by the heading halfway through the cycle, so moving while turning doesn't skew the pose.
+        double midHeading = Math.toRadians(heading + headingDelta / 2);
+        double cos = Math.cos(midHeading);
+        double sin = Math.sin(midHeading);
+        x += forward * cos - left * sin;
+        y += forward * sin + left * cos;
+        heading = wrapDegrees(heading + headingDelta);
+    }
+
+    @Override
+    public void run() {
+        update();
+    }
+
+    private int wheelDelta(Motor motor, int index) {
+        int position = motor.getCurrentPosition();
+        int delta = position - lastPositions[index];
+        lastPositions[index] = position;
+        // Driving forward is negative power in software, which the direction flips again on the hardware side.
+        return -delta * motor.getDirection().getMultiplier();
+    }
+
+    // Takes the current encoder counts and IMU heading as the new reference, without moving the pose.
+    // Needed after anything resets the drive encoders.
+    public void resync() {
+        resync(driveTrain.getCurrentAngle(1));
+    }
+
+    private void resync(double imuHeading) {
+        Motor[] motors = driveTrain.motors;
+        for (int i = 0; i < lastPositions.length; i++) {
+            lastPositions[i] = motors[i].getCurrentPosition();
+        }
+        lastImuHeading = imuHeading;
+        initialized = true;
+    }
+
+    public void setPose(double x, double y, double heading) {
+        this.x = x;
+        this.y = y;
+        this.heading = wrapDegrees(heading);
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public double getHeading() {
+        return heading;
+    }
+
+    public double distanceTo(double x, double y) {
+        return Math.hypot(x - this.x, y - this.y);
+    }
+
+    static double wrapDegrees(double angle) {
+        while (angle > 180) angle -= 360;
+        while (angle <= -180) angle += 360;
+        return angle;
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.z3db0y.susanalib;
+
+public abstract class MotionCommand {
+
+    public enum State {
+        // TIMED_OUT means it gave up short of its target without being stuck.
+        RUNNING, FINISHED, STALLED, TIMED_OUT, CANCELLED
+    }
+
+    private State state = State.RUNNING;
+
+    // Issues the initial motor writes, called once by MotionScheduler.schedule().
+    protected abstract void start();
+
+    // Advances the motion by one control cycle and reports whether it is still running.
+    protected abstract State update();
+
+    protected void end(State state) {}
+
+    void tick() {
+        if (state != State.RUNNING) return;
+        State next = update();
+        if (next != State.RUNNING) {
+            state = next;
+            end(next);
+        }
+    }
+
+    public void cancel() {
+        if (state != State.RUNNING) return;
+        state = State.CANCELLED;
+        end(State.CANCELLED);
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isDone() {
+        return state != State.RUNNING;
+    }
+
+    public boolean wasStalled() {
+        return state == State.STALLED;
+    }
+
+    public boolean wasTimedOut() {
+        return state == State.TIMED_OUT;
+    }
+
+}
@@ -0,0 +1,122 @@
+package com.z3db0y.susanalib;
+
+// Rest-to-rest velocity profile over a fixed distance, built from seven constant-jerk segments:
+// jerk up, constant acceleration, jerk down, cruise, and the mirror image to stop.
+// With maxJerk <= 0 the jerk segments have no length and it degenerates into a trapezoid.
+// Units are whatever the distance is in, per second. sample() fills the public fields, so it doesn't allocate.
+public class MotionProfile {
+
+    private final double[] durations = new double[7];
+    private final double[] jerks = new double[7];
+    private final double[] startPositions = new double[7];
+    private final double[] startVelocities = new double[7];
+    private final double[] startAccelerations = new double[7];
+    private final double sign;
+    private final double distance;
+    private final double duration;
+
+    public double position;
+    public double velocity;
+    public double acceleration;
+
+    public MotionProfile(double distance, double maxVelocity, double maxAcceleration, double maxJerk) {
+        this.sign = Math.signum(distance);
+        this.distance = Math.abs(distance);
+        double d = this.distance;
+        boolean trapezoid = maxJerk <= 0;
+
+        // Peak velocity and acceleration, lowered when the move is too short to reach the limits.
+        double v = maxVelocity;
+        double a = peakAcceleration(v, maxAcceleration, maxJerk, trapezoid);
+        if (v * accelerationTime(v, a, maxJerk, trapezoid) > d) {
+            if (trapezoid) {
+                v = Math.sqrt(d * maxAcceleration);
+            } else {
+                double jerkTime = maxAcceleration / maxJerk;
+                v = maxAcceleration / 2 * (-jerkTime + Math.sqrt(jerkTime * jerkTime + 4 * d / maxAcceleration));
+                // Too short to even reach maxAcceleration.
+                if (v < maxAcceleration * maxAcceleration / maxJerk) v = Math.pow(d * Math.sqrt(maxJerk) / 2, 2.0 / 3.0);
+            }
+            a = peakAcceleration(v, maxAcceleration, maxJerk, trapezoid);
+        }
+
+        double jerkTime = trapezoid ? 0 : a / maxJerk;
+        double accelerationTime = accelerationTime(v, a, maxJerk, trapezoid);
+        double constantTime = Math.max(0, accelerationTime - 2 * jerkTime);
+        double cruiseTime = v > 0 ? Math.max(0, (d - v * accelerationTime) / v) : 0;
+        double j = trapezoid ? 0 : maxJerk;
+
+        setSegment(0, jerkTime, j, 0);
+        setSegment(1, constantTime, 0, a);
+        setSegment(2, jerkTime, -j, a);
+        setSegment(3, cruiseTime, 0, 0);
+        setSegment(4, jerkTime, -j, 0);
+        setSegment(5, constantTime, 0, -a);
+        setSegment(6, jerkTime, j, -a);
+
+        double p = 0, vel = 0, total = 0;
+        for (int i = 0; i < 7; i++) {
+            startPositions[i] = p;
+            startVelocities[i] = vel;
+            double t = durations[i];
+            double acc = startAccelerations[i];
+            p += vel * t + acc * t * t / 2 + jerks[i] * t * t * t / 6;
+            vel += acc * t + jerks[i] * t * t / 2;
+            total += t;
+        }
+        this.duration = total;
+    }
+
+    // Trapezoidal profile, no jerk limit.
+    public MotionProfile(double distance, double maxVelocity, double maxAcceleration) {
+        this(distance, maxVelocity, maxAcceleration, 0);
+    }
+
+    private void setSegment(int index, double duration, double jerk, double startAcceleration) {
+        durations[index] = duration;
+        jerks[index] = jerk;
+        startAccelerations[index] = startAcceleration;
+    }
+
+    static private double peakAcceleration(double velocity, double maxAcceleration, double maxJerk, boolean trapezoid) {
+        if (trapezoid) return maxAcceleration;
+        // Reaching maxAcceleration and ramping back down would overshoot the velocity.
+        return Math.min(maxAcceleration, Math.sqrt(velocity * maxJerk));
+    }
+
+    // Time from rest to the given velocity.
+    static private double accelerationTime(double velocity, double acceleration, double maxJerk, boolean trapezoid) {
+        if (acceleration <= 0) return 0;
+        return trapezoid ? velocity / acceleration : velocity / acceleration + acceleration / maxJerk;
+    }
+
+    public double getDuration() {
+        return duration;
+    }
+
+    public double getDistance() {
+        return sign * distance;
+    }
+
+    // Sets position, velocity and acceleration at time t in seconds, clamped to the ends of the profile.
+    public void sample(double t) {
+        if (t >= duration) {
+            position = sign * distance;
+            velocity = 0;
+            acceleration = 0;
+            return;
+        }
+        if (t < 0) t = 0;
+        int i = 0;
+        while (i < 6 && t >= durations[i]) {
+            t -= durations[i];
+            i++;
+        }
+        double acc = startAccelerations[i];
+        double vel = startVelocities[i];
+        position = sign * (startPositions[i] + vel * t + acc * t * t / 2 + jerks[i] * t * t * t / 6);
+        velocity = sign * (vel + acc * t + jerks[i] * t * t / 2);
+        acceleration = sign * (acc + jerks[i] * t);
+    }
+
+}
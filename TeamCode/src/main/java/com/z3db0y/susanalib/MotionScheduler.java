@@ -0,0 +1,87 @@
+package com.z3db0y.susanalib;
+
+import java.lang.Thread;
+import java.util.ArrayList;
+
+public class MotionScheduler {
+
+    static private final ArrayList<MotionCommand> commands = new ArrayList<>();
+    static private final ArrayList<Runnable> periodic = new ArrayList<>();
+
+    // Runs every cycle ahead of the commands, for estimators like MecanumOdometry that the commands read from.
+    static public void addPeriodic(Runnable task) {
+        if (!periodic.contains(task)) periodic.add(task);
+    }
+
+    static public void removePeriodic(Runnable task) {
+        periodic.remove(task);
+    }
+
+    static public <T extends MotionCommand> T schedule(T command) {
+        command.start();
+        commands.add(command);
+        return command;
+    }
+
+    // Advances every active command by one control cycle, call once per loop after BulkRead.clear().
+    static public void update() {
+        for (int i = 0; i < periodic.size(); i++) {
+            periodic.get(i).run();
+        }
+        for (int i = 0; i < commands.size(); i++) {
+            MotionCommand command = commands.get(i);
+            command.tick();
+            if (command.isDone()) {
+                commands.remove(i);
+                i--;
+            }
+        }
+    }
+
+    // Blocks until the command is done while still advancing every other active command.
+    // Stopping the opmode interrupts its thread, then every command still running is cancelled and this returns early.
+    static public <T extends MotionCommand> T await(T command) {
+        while (!command.isDone() && !stopRequested()) {
+            BulkRead.clear();
+            update();
+            Logger.update();
+            // What LinearOpMode.idle() does, the SDK's own threads get a turn every cycle.
+            Thread.yield();
+        }
+        return command;
+    }
+
+    static public void awaitAll() {
+        while (!commands.isEmpty() && !stopRequested()) {
+            BulkRead.clear();
+            update();
+            Logger.update();
+            Thread.yield();
+        }
+    }
+
+    // The interrupt flag stays set, so the opmode's next await() returns right away too.
+    static private boolean stopRequested() {
+        if (!Thread.currentThread().isInterrupted()) return false;
+        cancelAll();
+        return true;
+    }
+
+    static public void cancelAll() {
+        for (int i = 0; i < commands.size(); i++) {
+            commands.get(i).cancel();
+        }
+        commands.clear();
+    }
+
+    // Forgets commands and periodic tasks left over from a previous opmode without touching the hardware.
+    static public void clear() {
+        commands.clear();
+        periodic.clear();
+    }
+
+    static public boolean isIdle() {
+        return commands.isEmpty();
+    }
+
+}
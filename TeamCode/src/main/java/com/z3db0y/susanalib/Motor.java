@@ -3,17 +3,37 @@ package com.z3db0y.susanalib;
 import com.qualcomm.robotcore.hardware.DcMotor;
 import com.qualcomm.robotcore.hardware.DcMotorEx;
 import com.qualcomm.robotcore.hardware.HardwareMap;
+import com.qualcomm.robotcore.hardware.TouchSensor;
 
 public class Motor {
+    private static final Logger.Tag TAG = Logger.tag("Motor.runToPosition");
     private final DcMotor motor;
     private Direction direction;
     private boolean holdPosition;
-    private double lastStallCheck = 0;
-    private double lastVelocity;
     private double power = 0;
     private DcMotor.RunMode runMode = DcMotor.RunMode.RUN_WITHOUT_ENCODER;
+    private int cachedPosition;
+    private double cachedVelocity;
+    private long positionCycle = -1;
+    private long velocityCycle = -1;
+    // Shadow copies of the last values written to the controller, unset until the first write.
+    private DcMotor.RunMode writtenMode;
+    private double writtenPower = Double.NaN;
+    private int writtenTarget;
+    private boolean targetWritten = false;
+    private DcMotor.ZeroPowerBehavior writtenZeroPowerBehavior;
+    private int issuedWrites = 0;
+    private int suppressedWrites = 0;
     public double wheelRadius = 3.75;
     public double ratio = 20;
+    public int targetTolerance = 10;
+    // Feedforward for setVelocity(): volts to overcome friction, volts per tick/s and volts per tick/s^2.
+    public double kS = 0;
+    public double kV = 0;
+    public double kA = 0;
+    private boolean voltageCompensation = false;
+    private MotionCommand activeCommand;
+    public final StallDetector stallDetector = new StallDetector();
 
     public enum Direction {
         FORWARD(1), REVERSE(-1);
@@ -30,24 +50,85 @@ public class Motor {
     public Motor(HardwareMap hardwareMap, String deviceName) {
         this.motor = hardwareMap.get(DcMotor.class, deviceName);
         this.direction = Direction.FORWARD;
-        this.motor.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
-        this.motor.setMode(DcMotor.RunMode.RUN_WITHOUT_ENCODER);
+        writeMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
+        writeMode(DcMotor.RunMode.RUN_WITHOUT_ENCODER);
+    }
+
+    private void writeMode(DcMotor.RunMode mode) {
+        if(mode == writtenMode && mode != DcMotor.RunMode.STOP_AND_RESET_ENCODER) {
+            suppressedWrites++;
+            return;
+        }
+        this.motor.setMode(mode);
+        writtenMode = mode;
+        // Stopping the motor for a reset zeroes its power on the controller side.
+        if(mode == DcMotor.RunMode.STOP_AND_RESET_ENCODER) writtenPower = Double.NaN;
+        issuedWrites++;
+    }
+
+    private void writePower(double power) {
+        if(power == writtenPower) {
+            suppressedWrites++;
+            return;
+        }
+        this.motor.setPower(power);
+        writtenPower = power;
+        issuedWrites++;
+    }
+
+    private void writeTarget(int ticks) {
+        if(targetWritten && writtenTarget == ticks) {
+            suppressedWrites++;
+            return;
+        }
+        this.motor.setTargetPosition(ticks);
+        writtenTarget = ticks;
+        targetWritten = true;
+        issuedWrites++;
+    }
+
+    private void writeZeroPowerBehavior(DcMotor.ZeroPowerBehavior behavior) {
+        if(behavior == writtenZeroPowerBehavior) {
+            suppressedWrites++;
+            return;
+        }
+        this.motor.setZeroPowerBehavior(behavior);
+        writtenZeroPowerBehavior = behavior;
+        issuedWrites++;
+    }
+
+    public int getIssuedWrites() {
+        return issuedWrites;
+    }
+
+    public int getSuppressedWrites() {
+        return suppressedWrites;
+    }
+
+    public void resetWriteCounters() {
+        issuedWrites = 0;
+        suppressedWrites = 0;
     }
 
     public boolean atTargetPosition() {
-        return  motor.getCurrentPosition() == motor.getTargetPosition();
+        return this.getCurrentPosition() == this.getTargetPosition();
     }
 
     public void resetEncoder(){
-        this.motor.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
-        this.motor.setMode(this.runMode);
+        writeMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
+        writeMode(this.runMode);
+        // The hub cache still holds the pre-reset count.
+        BulkRead.clear();
     }
 
     public void setZeroPowerBehavior(DcMotor.ZeroPowerBehavior behavior) {
-        this.motor.setZeroPowerBehavior(behavior);
+        writeZeroPowerBehavior(behavior);
     }
 
-    public DcMotor.ZeroPowerBehavior getZeroPowerBehavior() { return this.motor.getZeroPowerBehavior(); }
+    public DcMotor.ZeroPowerBehavior getZeroPowerBehavior() {
+        if(writtenZeroPowerBehavior != null) return writtenZeroPowerBehavior;
+        return this.motor.getZeroPowerBehavior();
+    }
 
     public void setDirection(Direction dir) {
         this.direction = dir;
@@ -66,17 +147,68 @@ public class Motor {
     }
 
     public void setPower(double power) {
-        this.motor.setMode(this.runMode);
         this.power = power;
-        this.motor.setPower(power * this.direction.getMultiplier());
-        updateHoldPosition();
+        // Holding at zero power ends up in RUN_TO_POSITION anyway, don't bounce through runMode first.
+        if(power == 0 && this.holdPosition) {
+            updateHoldPosition();
+            return;
+        }
+        writeMode(this.runMode);
+        writePower(compensate(power) * this.direction.getMultiplier());
+    }
+
+    // Scales powers by Battery.getCompensation() while running without encoders, so a power means the same
+    // output on a full battery and a sagging one. With encoders the controller's velocity loop does that already.
+    public void setVoltageCompensation(boolean enabled) {
+        this.voltageCompensation = enabled;
+    }
+
+    public boolean getVoltageCompensation() {
+        return this.voltageCompensation;
+    }
+
+    private double compensate(double power) {
+        if(!voltageCompensation || this.runMode != DcMotor.RunMode.RUN_WITHOUT_ENCODER || power == 0) return power;
+        return Math.max(-1, Math.min(1, power * Battery.getCompensation()));
+    }
+
+    // Open loop through the kS/kV/kA model, in ticks/s and ticks/s^2 with the same sign as setPower().
+    // The volts are divided by the filtered battery voltage, so the motor runs in RUN_WITHOUT_ENCODER.
+    public void setVelocity(double ticksPerSecond, double ticksPerSecondSquared) {
+        setVelocity(ticksPerSecond, ticksPerSecondSquared, 0);
+    }
+
+    // Same, with a feedback power added on top for a position loop the caller closes itself.
+    public void setVelocity(double ticksPerSecond, double ticksPerSecondSquared, double feedback) {
+        if(!hasFeedforward()) throw new IllegalStateException("setVelocity() needs kV, tune it or use setPower()");
+        double volts = kV * ticksPerSecond + kA * ticksPerSecondSquared;
+        if(ticksPerSecond != 0) volts += Math.signum(ticksPerSecond) * kS;
+        double power = Math.max(-1, Math.min(1, volts / Battery.getVoltage() + feedback));
+        this.power = power;
+        if(power == 0 && this.holdPosition) {
+            updateHoldPosition();
+            return;
+        }
+        writeMode(DcMotor.RunMode.RUN_WITHOUT_ENCODER);
+        writePower(power * this.direction.getMultiplier());
+    }
+
+    // Without kV there's no model to speak of, setVelocity() refuses and getMaxVelocity() doesn't limit anything.
+    public boolean hasFeedforward() {
+        return kV > 0;
+    }
+
+    // The highest speed setVelocity() can hold at the current battery voltage, in ticks/s.
+    public double getMaxVelocity() {
+        if(!hasFeedforward()) return Double.POSITIVE_INFINITY;
+        return Math.max(0, Battery.getVoltage() - kS) / kV;
     }
 
     private void updateHoldPosition() {
         if(this.getPower() == 0 && this.holdPosition) {
-            this.motor.setTargetPosition(this.motor.getCurrentPosition());
-            this.motor.setMode(DcMotor.RunMode.RUN_TO_POSITION);
-            this.motor.setPower(1);
+            writeTarget(this.getCurrentPosition());
+            writeMode(DcMotor.RunMode.RUN_TO_POSITION);
+            writePower(1);
         }
     }
 
@@ -94,66 +226,142 @@ public class Motor {
     }
 
     public int getPosition() {
-        return this.motor.getCurrentPosition();
+        return this.getCurrentPosition();
     }
 
     public void resetStallDetection(){
-        this.lastStallCheck = 0;
-        this.lastVelocity = 0;
+        this.stallDetector.reset();
     }
 
-    // Only to be used in runToPosition function - because lastStallCheck has to be reset.
+    // Samples the motor, so call it every cycle while it should be moving.
     public boolean isStalled() {
-        if(lastStallCheck == 0) lastStallCheck = System.currentTimeMillis();
-        double velocity = this.getVelocity();
-        Logger.addData("Velocity: " + velocity);
-        boolean stalled = false;
-        if(System.currentTimeMillis() - lastStallCheck > 1000) {
-            double delta = velocity - lastVelocity;
-            if(delta == 0 || Math.abs(velocity) < 15 && this.getPower() != 0) {
-                stalled = true;
+        return stallDetector.update(Clock.nanoTime(), this.getCurrentPosition(), this.getVelocity(), this.getPower());
+    }
+
+    // A blocking move stops the motor once |position| passes |target|,
+    // an async one leaves it holding in RUN_TO_POSITION and finishes within targetTolerance.
+    private class PositionMove extends MotionCommand {
+        final int target;
+        final double power;
+        final boolean blocking;
+
+        PositionMove(int target, double power, boolean blocking) {
+            this.target = target;
+            this.power = power;
+            this.blocking = blocking;
+        }
+
+        @Override
+        protected void start() {
+            stallDetector.reset();
+            writeTarget(target);
+            writeMode(DcMotor.RunMode.RUN_TO_POSITION);
+            // Not setPower(), that would write runMode again and take the motor out of RUN_TO_POSITION.
+            Motor.this.power = power;
+            writePower(power * direction.getMultiplier());
+        }
+
+        @Override
+        protected State update() {
+            if(blocking ? Math.abs(getPosition()) >= Math.abs(target) : Math.abs(target - getPosition()) <= targetTolerance) {
+                return State.FINISHED;
             }
-            Logger.addData("Delta: " + delta);
-            lastVelocity = velocity;
-            this.resetStallDetection();
+            if(isStalled()) return State.STALLED;
+            if(blocking) TAG.addData("", getPosition());
+            return State.RUNNING;
+        }
+
+        @Override
+        protected void end(State state) {
+            if(blocking) setPower(0);
         }
-        return stalled;
     }
 
-    public boolean runToPosition(int ticks, double power) {
-        this.lastStallCheck = 0;
-        this.motor.setTargetPosition(this.direction.getMultiplier() * ticks);
-        this.motor.setMode(DcMotor.RunMode.RUN_TO_POSITION);
-        this.setPower(power);
+    // Runs towards position 0 until the limit switch closes, then makes that the new zero.
+    // The switch is read through the scheduler's cycles, so with BulkRead on it comes from a fresh bulk read every time.
+    // Stops as stalled if the motor gets stuck at 0 without ever reaching the switch.
+    private class HomeMove extends MotionCommand {
+        final TouchSensor limit;
+        final double power;
+
+        HomeMove(TouchSensor limit, double power) {
+            this.limit = limit;
+            this.power = power;
+        }
 
-        boolean wasStalled = false;
-        while(Math.abs(this.getPosition()) < Math.abs(ticks) && !(wasStalled = isStalled())) {
-            Logger.addData(this.getPosition());
+        @Override
+        protected void start() {
+            stallDetector.reset();
+            runMode = DcMotor.RunMode.RUN_TO_POSITION;
+            writeTarget(0);
+            writeMode(DcMotor.RunMode.RUN_TO_POSITION);
+            Motor.this.power = power;
+            writePower(power * direction.getMultiplier());
+        }
+
+        @Override
+        protected State update() {
+            if(limit.isPressed()) return State.FINISHED;
+            if(isStalled()) return State.STALLED;
+            return State.RUNNING;
+        }
+
+        @Override
+        protected void end(State state) {
+            if(state == State.FINISHED) resetEncoder();
+            setPower(0);
         }
-        this.setPower(0);
-        return wasStalled;
     }
 
-    public void runToPositionAsync(int ticks, double power) {
-        this.motor.setTargetPosition(ticks);
-        this.motor.setMode(DcMotor.RunMode.RUN_TO_POSITION);
-        this.setPower(power);
+    private MotionCommand scheduleMotion(MotionCommand command) {
+        if(activeCommand != null) activeCommand.cancel();
+        activeCommand = command;
+        return MotionScheduler.schedule(command);
+    }
+
+    public boolean runToPosition(int ticks, double power) {
+        return MotionScheduler.await(scheduleMotion(new PositionMove(this.direction.getMultiplier() * ticks, power, true))).wasStalled();
+    }
+
+    public MotionCommand runToPositionAsync(int ticks, double power) {
+        return scheduleMotion(new PositionMove(ticks, power, false));
+    }
+
+    public boolean home(TouchSensor limit, double power) {
+        return MotionScheduler.await(homeAsync(limit, power)).wasStalled();
+    }
+
+    // Keeps going while the opmode awaits other motions.
+    public MotionCommand homeAsync(TouchSensor limit, double power) {
+        return scheduleMotion(new HomeMove(limit, power));
     }
 
     public void setTargetPosition(int ticks) {
-        this.motor.setTargetPosition(ticks);
+        writeTarget(ticks);
     }
 
     public int getTargetPosition() {
+        if(targetWritten) return writtenTarget;
         return this.motor.getTargetPosition();
     }
 
+    // With BulkRead enabled, position and velocity are read at most once per control cycle.
     public int getCurrentPosition() {
-        return this.motor.getCurrentPosition();
+        if(!BulkRead.isEnabled()) return this.motor.getCurrentPosition();
+        if(positionCycle != BulkRead.getCycle()) {
+            cachedPosition = this.motor.getCurrentPosition();
+            positionCycle = BulkRead.getCycle();
+        }
+        return cachedPosition;
     }
 
     public double getVelocity() {
-        return ((DcMotorEx)this.motor).getVelocity();
+        if(!BulkRead.isEnabled()) return ((DcMotorEx)this.motor).getVelocity();
+        if(velocityCycle != BulkRead.getCycle()) {
+            cachedVelocity = ((DcMotorEx)this.motor).getVelocity();
+            velocityCycle = BulkRead.getCycle();
+        }
+        return cachedVelocity;
     }
 
     public int calculateTicks(int cm) {
@@ -0,0 +1,56 @@
+package com.z3db0y.susanalib;
+
+public class PIDController {
+
+    public double kP;
+    public double kI;
+    public double kD;
+    // Caps what the integral term can contribute, and it stops accumulating while the output is saturated.
+    public double integralLimit = 0.2;
+    public double outputLimit = 1;
+    // Gain scheduling: below scheduleError kP is blended towards kP * scheduleScale at zero error.
+    // Small errors then still get enough power to overcome friction. 0 turns it off.
+    public double scheduleError = 0;
+    public double scheduleScale = 1;
+
+    private double integral = 0;
+    private double lastError;
+    private boolean hasLastError = false;
+
+    public PIDController(double kP, double kI, double kD) {
+        this.kP = kP;
+        this.kI = kI;
+        this.kD = kD;
+    }
+
+    public void reset() {
+        integral = 0;
+        hasLastError = false;
+    }
+
+    // dt is the time since the previous update in seconds.
+    public double update(double error, double dt) {
+        double p = scheduledGain(Math.abs(error)) * error;
+        double d = hasLastError && dt > 0 ? kD * (error - lastError) / dt : 0;
+        lastError = error;
+        hasLastError = true;
+
+        boolean saturated = Math.abs(p + kI * integral + d) >= outputLimit && Math.signum(p + d) == Math.signum(error);
+        if (!saturated && kI != 0) {
+            integral += error * dt;
+            integral = clamp(integral, integralLimit / kI);
+        }
+        return clamp(p + kI * integral + d, outputLimit);
+    }
+
+    private double scheduledGain(double error) {
+        if (scheduleError <= 0 || error >= scheduleError) return kP;
+        return kP * (scheduleScale + (1 - scheduleScale) * error / scheduleError);
+    }
+
+    static private double clamp(double value, double limit) {
+        limit = Math.abs(limit);
+        return Math.max(-limit, Math.min(limit, value));
+    }
+
+}
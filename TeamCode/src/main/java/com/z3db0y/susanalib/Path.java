@@ -0,0 +1,65 @@
+package com.z3db0y.susanalib;
+
+import java.util.ArrayList;
+
+// A route of straights, strafes, turns and arcs that MecanumDriveTrain.followPath() drives as one continuous motion.
+// Distances are in cm, angles in degrees with counter-clockwise positive, all relative to the robot.
+public class Path {
+
+    static final int RELATIVE = 0;
+    static final int ABSOLUTE = 1;
+
+    static class Segment {
+        // Robot-relative direction, forward and left in cm and rotation in degrees per unit of length.
+        final double forward;
+        final double left;
+        final double rotation;
+        final double length;
+        // An ABSOLUTE turn keeps its target heading in length, MecanumDriveTrain resolves the rotation when the path starts.
+        final int type;
+
+        Segment(double forward, double left, double rotation, double length, int type) {
+            this.forward = forward;
+            this.left = left;
+            this.rotation = rotation;
+            this.length = length;
+            this.type = type;
+        }
+    }
+
+    final ArrayList<Segment> segments = new ArrayList<>();
+
+    public Path straight(double cm) {
+        segments.add(new Segment(Math.signum(cm), 0, 0, Math.abs(cm), RELATIVE));
+        return this;
+    }
+
+    public Path strafe(MecanumDriveTrain.Side side, double cm) {
+        segments.add(new Segment(0, side.getMultiplier() * Math.signum(cm), 0, Math.abs(cm), RELATIVE));
+        return this;
+    }
+
+    public Path turn(double degrees) {
+        segments.add(new Segment(0, 0, Math.signum(degrees), Math.abs(degrees), RELATIVE));
+        return this;
+    }
+
+    // Turns to a heading of the drive train's odometry, the same reference MecanumDriveTrain.turn() uses.
+    public Path turnTo(double heading) {
+        segments.add(new Segment(0, 0, 0, MecanumOdometry.wrapDegrees(heading), ABSOLUTE));
+        return this;
+    }
+
+    // Drives along a circle, changing the heading by degrees. A negative radius drives it backwards.
+    public Path arc(double radiusCm, double degrees) {
+        double length = Math.abs(radiusCm * Math.toRadians(degrees));
+        if (length == 0) return this;
+        segments.add(new Segment(Math.signum(radiusCm), 0, Math.abs(degrees) / length * Math.signum(degrees), length, RELATIVE));
+        return this;
+    }
+
+    public int size() {
+        return segments.size();
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.z3db0y.susanalib;
+
+public class StallDetector {
+
+    public double velocityThreshold = 15;
+    public int positionThreshold = 10;
+
+    private final long[] times;
+    private final int[] positions;
+    private final double[] velocities;
+    private final double[] powers;
+    // A mechanism is stalled when it has been powered for the whole window while barely moving.
+    private long windowNanos;
+    private long sampleSpacing;
+    // Where the newest slot's stretch of time began, slots follow on from each other every sampleSpacing.
+    private long slotStart;
+    private int head = -1;
+    private int count = 0;
+
+    public StallDetector(int capacity, int windowMs) {
+        this.times = new long[capacity];
+        this.positions = new int[capacity];
+        this.velocities = new double[capacity];
+        this.powers = new double[capacity];
+        setWindowMs(windowMs);
+    }
+
+    public StallDetector() {
+        this(32, 250);
+    }
+
+    // The samples are spaced for the window, so changing it starts the history over.
+    public void setWindowMs(int windowMs) {
+        this.windowNanos = windowMs * 1_000_000L;
+        // Spaced so a full buffer always spans the window, no matter how fast the loop runs.
+        this.sampleSpacing = this.windowNanos / (times.length - 2);
+        reset();
+    }
+
+    public int getWindowMs() {
+        return (int) (windowNanos / 1_000_000L);
+    }
+
+    public void reset() {
+        head = -1;
+        count = 0;
+    }
+
+    // Records a sample and evaluates the window, call once per control cycle.
+    public boolean update(long time, int position, double velocity, double power) {
+        // The newest slot is overwritten until its stretch of sampleSpacing is over, then it's kept as history.
+        // Stretches are laid out from the previous one rather than from the sample that ended it, otherwise every kept
+        // sample lands a little early on a fast loop and the buffer no longer spans the window.
+        if (count == 0 || time - slotStart >= sampleSpacing) {
+            head = (head + 1) % times.length;
+            if (count < times.length) count++;
+            slotStart = count == 1 || time - slotStart >= 2 * sampleSpacing ? time : slotStart + sampleSpacing;
+        }
+        times[head] = time;
+        positions[head] = position;
+        velocities[head] = velocity;
+        powers[head] = power;
+        return isStalled();
+    }
+
+    public boolean isStalled() {
+        if (count == 0) return false;
+        long windowStart = times[head] - windowNanos;
+        int index = head;
+        for (int i = 0; i < count; i++) {
+            if (powers[index] == 0 || Math.abs(velocities[index]) >= velocityThreshold) return false;
+            if (times[index] <= windowStart) {
+                return Math.abs(positions[head] - positions[index]) < positionThreshold;
+            }
+            index = previous(index);
+        }
+        // Not enough history to cover the window yet.
+        return false;
+    }
+
+    private int previous(int index) {
+        return index == 0 ? times.length - 1 : index - 1;
+    }
+
+}
@@ -1,11 +1,27 @@
 package com.z3db0y.susanalib;
 
+import java.util.concurrent.locks.LockSupport;
+
 public class Thread {
 
+    // The scheduler can wake us up late by about this much, so the last stretch is spun instead of parked.
+    private static final long SPIN_NANOS = 500_000;
+
     public static void sleep(int ms) {
-        double start = System.currentTimeMillis();
-        while (System.currentTimeMillis() - start < ms) {
-            // do nothing
+        Clock.sleepUntil(Clock.nanoTime() + ms * 1_000_000L);
+    }
+
+    // Deadline is in System.nanoTime() units, use Clock.sleepUntil() to also respect virtual time.
+    // Returns early if the thread is interrupted (opmode stop).
+    public static void sleepUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            if (java.lang.Thread.currentThread().isInterrupted()) return;
+            if (remaining > SPIN_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_NANOS);
+            } else {
+                java.lang.Thread.yield();
+            }
         }
     }
 
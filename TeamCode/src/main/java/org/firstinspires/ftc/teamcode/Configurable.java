@@ -43,4 +43,46 @@ public class Configurable {
     public static double wheelCircumference = 2 * Math.PI * wheelRadius;
     public static double centerToWheel = 21;
 
+    // Motion profile limits for driveCM/strafeCM, in cm/s, cm/s^2 and cm/s^3
+    public static double driveMaxVelocity = 100;
+    public static double driveMaxAcceleration = 120;
+    public static double driveMaxJerk = 600;
+
+    // Drive motor voltage feedforward for the profiled moves (volts, volts per tick/s, volts per tick/s^2), 0 kV turns it off.
+    // Start values are the 2800 ticks/s free speed at 12V and the roadrunner gains below in volts, retune on the field.
+    public static double driveMotorKS = 0.6;
+    public static double driveMotorKV = 0.0043;
+    public static double driveMotorKA = 0.0029;
+
+    // Maximum power of the heading controller in turn()
+    public static double turnPower = 0.8;
+
+    // Roadrunner feedforward (power per cm/s^2, minimum power), strafe correction and follower gains
+    public static double driveKA = 0.001;
+    public static double driveKStatic = 0.05;
+    public static double driveLateralMultiplier = 1;
+    public static double trajectoryTranslationalP = 4;
+    public static double trajectoryHeadingP = 4;
+    public static double trajectoryMaxAngularVelocity = 180;
+
+    // Trajectory openings: forward off the wall, then across to the shipping hub
+    public static double autoStartForward = 15;
+    public static double autoCrossDistance = 76;
+
+    // How often ImuSampler polls the IMU in the background, in Hz
+    public static double imuSampleRate = 100;
+
+    // Teleop stick shaping: deadband, expo (0 linear, 1 cubic) and how fast the drive commands may change per second
+    public static double driveDeadband = 0.05;
+    public static double driveExpo = 0.4;
+    public static double driveSlewRate = 4;
+    public static double turnSlewRate = 8;
+
+    // Draw the detector preview for the camera stream, turn off for competition to save the frame time
+    public static boolean visionPreview = true;
+
+    // The camera closes once the detector's vote has held this many frames after start with at least this confidence
+    public static int visionSettleFrames = 10;
+    public static double visionMinConfidence = 0.6;
+
 }
@@ -6,14 +6,42 @@ import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
 import com.qualcomm.robotcore.hardware.DcMotor;
 import com.qualcomm.robotcore.hardware.DistanceSensor;
 import com.qualcomm.robotcore.hardware.TouchSensor;
+import com.z3db0y.susanalib.Battery;
+import com.z3db0y.susanalib.BulkRead;
+import com.z3db0y.susanalib.ImuSampler;
+import com.z3db0y.susanalib.InputShaper;
 import com.z3db0y.susanalib.Logger;
 import com.z3db0y.susanalib.MecanumDriveTrain;
 import com.z3db0y.susanalib.Motor;
+import com.z3db0y.susanalib.MotionScheduler;
 
 import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
 
 @TeleOp(name = "TeleOp", group = "FTC22")
 public class Drive extends LinearOpMode {
+    private static final Logger.Tag RUN = Logger.tag("Drive.runOpMode");
+    private static final Logger.Tag LOGGING = Logger.tag("Drive.Logging");
+    // Registered in initLogging() after setTelemetry(), which drops the previous run's slots.
+    private Logger.Slot globalPowerFactorSlot;
+    private Logger.Slot frontRightPowerSlot;
+    private Logger.Slot frontLeftPowerSlot;
+    private Logger.Slot backRightPowerSlot;
+    private Logger.Slot backLeftPowerSlot;
+    private Logger.Slot armPowerSlot;
+    private Logger.Slot collectorPowerSlot;
+    private Logger.Slot duckSpinnerPowerSlot;
+    private Logger.Slot duckSpinnerVariableSlot;
+    private Logger.Slot targetArmTicksSlot;
+    private Logger.Slot duckSpinnerTicksSlot;
+    private Logger.Slot collectorTicksSlot;
+    private Logger.Slot frontRightTicksSlot;
+    private Logger.Slot frontLeftTicksSlot;
+    private Logger.Slot backRightTicksSlot;
+    private Logger.Slot backLeftTicksSlot;
+    private Logger.Slot duckSpinnerStepSlot;
+    private Logger.Slot duckSpinnerActivatedSlot;
+    private Logger.Slot lastResetTimeSlot;
+    private Logger.Slot prevTimeSlot;
     Motor frontLeft;
     Motor frontRight;
     Motor backLeft;
@@ -34,6 +62,12 @@ public class Drive extends LinearOpMode {
         arm = new Motor(hardwareMap, "arm");
         collector = new Motor(hardwareMap, "collector");
         duckSpinner = new Motor(hardwareMap, "duckSpinner");
+        BulkRead.enable(hardwareMap);
+        Battery.enable(hardwareMap);
+        // Configurable's collector and duck spinner powers shouldn't fade as the battery drains.
+        collector.setVoltageCompensation(true);
+        duckSpinner.setVoltageCompensation(true);
+        MotionScheduler.clear();
 
         // imu
         BNO055IMU.Parameters parameters = new BNO055IMU.Parameters();
@@ -41,6 +75,7 @@ public class Drive extends LinearOpMode {
         parameters.accelUnit = BNO055IMU.AccelUnit.METERS_PERSEC_PERSEC;
         imu = hardwareMap.get(BNO055IMU.class, "imu");
         imu.initialize(parameters);
+        ImuSampler.start(imu, Configurable.imuSampleRate);
 
         // Motor reversing - drivetrain
         backLeft.setDirection(Motor.Direction.REVERSE);
@@ -69,6 +104,11 @@ public class Drive extends LinearOpMode {
     double lastResetTime = 0;
     long prevTime = 0;
     boolean lastArmOnPower = false;
+    boolean fieldCentric = true;
+    boolean lastShare = false;
+    InputShaper forwardInput;
+    InputShaper turnInput;
+    InputShaper strafeInput;
 
 
     private void duckSpinnerControl() {
@@ -140,11 +180,11 @@ public class Drive extends LinearOpMode {
                 arm.resetEncoder();
                 arm.setTargetPosition(0);
                 arm.setRunMode(DcMotor.RunMode.RUN_TO_POSITION);
-                Logger.addData("touchSensor is currently pressed and I am ready to collect!", "#ef3f49");
+                RUN.addData("touchSensor is currently pressed and I am ready to collect!", "#ef3f49");
                 lastResetTime = System.currentTimeMillis();
             }
             else {
-                Logger.addData("ArmReset: " + "False");
+                RUN.addData("ArmReset: False");
                 if(lastArmOnPower) arm.setTargetPosition(arm.getCurrentPosition());
                 arm.setRunMode(DcMotor.RunMode.RUN_TO_POSITION);
                 arm.setPower(1);
@@ -198,30 +238,54 @@ public class Drive extends LinearOpMode {
         else collector.setPower(0);
     }
 
+    // Slots without a value are section headers, registering them is enough.
+    private void initLogging() {
+        Logger.slot(LOGGING, "Powers:");
+        globalPowerFactorSlot = Logger.slot(LOGGING, "|--  GlobalPowerFactor: ");
+        frontRightPowerSlot = Logger.slot(LOGGING, "|--  frontRight power: ");
+        frontLeftPowerSlot = Logger.slot(LOGGING, "|--  frontLeft power: ");
+        backRightPowerSlot = Logger.slot(LOGGING, "|--  backRight power: ");
+        backLeftPowerSlot = Logger.slot(LOGGING, "|--  backLeft power: ");
+        armPowerSlot = Logger.slot(LOGGING, "|--  Arm power: ");
+        collectorPowerSlot = Logger.slot(LOGGING, "|--  Collector power: ");
+        duckSpinnerPowerSlot = Logger.slot(LOGGING, "|--  duckSpinner power: ");
+        duckSpinnerVariableSlot = Logger.slot(LOGGING, "|--  duckSpinner variable: ");
+        Logger.slot(LOGGING, "Ticks:");
+        targetArmTicksSlot = Logger.slot(LOGGING, "|--  Target arm ticks: ");
+        duckSpinnerTicksSlot = Logger.slot(LOGGING, "|--  duckSpinner ticks: ");
+        collectorTicksSlot = Logger.slot(LOGGING, "|--  collector ticks: ");
+        frontRightTicksSlot = Logger.slot(LOGGING, "|--  frontRight ticks: ");
+        frontLeftTicksSlot = Logger.slot(LOGGING, "|--  frontLeft ticks: ");
+        backRightTicksSlot = Logger.slot(LOGGING, "|--  backRight ticks: ");
+        backLeftTicksSlot = Logger.slot(LOGGING, "|--  backLeft ticks: ");
+        Logger.slot(LOGGING, "Info (usually variables):");
+        duckSpinnerStepSlot = Logger.slot(LOGGING, "|--  duckSpinner step: ");
+        duckSpinnerActivatedSlot = Logger.slot(LOGGING, "|--  duckSpinnerActivated: ");
+        lastResetTimeSlot = Logger.slot(LOGGING, "|--  lastResetTime: ");
+        prevTimeSlot = Logger.slot(LOGGING, "|--  prevTime: ");
+    }
+
     private void Logging() {
-        Logger.addData("Powers:");
-        Logger.addData("|--  GlobalPowerFactor: " + globalPowerFactor);
-        Logger.addData("|--  frontRight power: " + frontRight.getPower());
-        Logger.addData("|--  frontLeft power: " + frontLeft.getPower());
-        Logger.addData("|--  backRight power: " + backRight.getPower());
-        Logger.addData("|--  backLeft power: " + backLeft.getPower());
-        Logger.addData("|--  Arm power: " + arm.getPower());
-        Logger.addData("|--  Collector power: " + collector.getPower());
-        Logger.addData("|--  duckSpinner power: " + duckSpinner.getPower());
-        Logger.addData("|--  duckSpinner variable: " + duckSpinnerPower);
-        Logger.addData("Ticks:");
-        Logger.addData("|--  Target arm ticks: " + arm.getTargetPosition());
-        Logger.addData("|--  duckSpinner ticks: " + duckSpinner.getCurrentPosition());
-        Logger.addData("|--  collector ticks: " + collector.getCurrentPosition());
-        Logger.addData("|--  frontRight ticks: " + frontRight.getCurrentPosition());
-        Logger.addData("|--  frontLeft ticks: " + frontLeft.getCurrentPosition());
-        Logger.addData("|--  backRight ticks: " + backRight.getCurrentPosition());
-        Logger.addData("|--  backLeft ticks: " + backLeft.getCurrentPosition());
-        Logger.addData("Info (usually variables):");
-        Logger.addData("|--  duckSpinner step: " + duckSpinnerStep);
-        Logger.addData("|--  duckSpinnerActivated: " + duckSpinnerActivated);
-        Logger.addData("|--  lastResetTime: " + lastResetTime);
-        Logger.addData("|--  prevTime: " + prevTime);
+        globalPowerFactorSlot.set(globalPowerFactor);
+        frontRightPowerSlot.set(frontRight.getPower());
+        frontLeftPowerSlot.set(frontLeft.getPower());
+        backRightPowerSlot.set(backRight.getPower());
+        backLeftPowerSlot.set(backLeft.getPower());
+        armPowerSlot.set(arm.getPower());
+        collectorPowerSlot.set(collector.getPower());
+        duckSpinnerPowerSlot.set(duckSpinner.getPower());
+        duckSpinnerVariableSlot.set(duckSpinnerPower);
+        targetArmTicksSlot.set(arm.getTargetPosition());
+        duckSpinnerTicksSlot.set(duckSpinner.getCurrentPosition());
+        collectorTicksSlot.set(collector.getCurrentPosition());
+        frontRightTicksSlot.set(frontRight.getCurrentPosition());
+        frontLeftTicksSlot.set(frontLeft.getCurrentPosition());
+        backRightTicksSlot.set(backRight.getCurrentPosition());
+        backLeftTicksSlot.set(backLeft.getCurrentPosition());
+        duckSpinnerStepSlot.set(duckSpinnerStep);
+        duckSpinnerActivatedSlot.set(duckSpinnerActivated);
+        lastResetTimeSlot.set(lastResetTime);
+        prevTimeSlot.set(prevTime);
         Logger.update();
     }
 
@@ -242,46 +306,66 @@ public class Drive extends LinearOpMode {
 //            }
 //        });
 
-        initHardware();
-        Logger.setTelemetry(telemetry);
-
-        double distance = cargoDetector.getDistance(DistanceUnit.CM);
-        double prevDistance = distance;
-
-        MecanumDriveTrain driveTrain = new MecanumDriveTrain(frontLeft, frontRight, backLeft, backRight, imu);
-        waitForStart();
-        while (opModeIsActive()) {
-            distance = cargoDetector.getDistance(DistanceUnit.CM);
-            Logger.addData("PrevDistance: " + prevDistance);
-            Logger.addData("Distance: " + distance);
-
-            if (Math.abs(prevDistance - distance) >= 2) {
-                gamepad1.rumble(1, 1, 200);
-                gamepad2.rumble(1, 1, 200);
-                prevDistance = distance;
-            }
-
-            if (driveTrain.isStalled()) {
-                Logger.addData("Drivetrain is stalled");
-                gamepad1.rumble(0.5, 1, 1000);
-                gamepad2.rumble(0.5, 1, 1000);
+        try {
+            initHardware();
+            Logger.setTelemetry(telemetry);
+            initLogging();
+
+            double distance = cargoDetector.getDistance(DistanceUnit.CM);
+            double prevDistance = distance;
+
+            MecanumDriveTrain driveTrain = new MecanumDriveTrain(frontLeft, frontRight, backLeft, backRight, imu);
+            forwardInput = new InputShaper(Configurable.driveDeadband, Configurable.driveExpo, Configurable.driveSlewRate);
+            turnInput = new InputShaper(Configurable.driveDeadband, Configurable.driveExpo, Configurable.turnSlewRate);
+            strafeInput = new InputShaper(Configurable.driveDeadband, Configurable.driveExpo, Configurable.driveSlewRate);
+            waitForStart();
+            while (opModeIsActive()) {
+                BulkRead.clear();
+                MotionScheduler.update();
+                distance = cargoDetector.getDistance(DistanceUnit.CM);
+                RUN.addData("PrevDistance: ", prevDistance);
+                RUN.addData("Distance: ", distance);
+
+                if (Math.abs(prevDistance - distance) >= 2) {
+                    gamepad1.rumble(1, 1, 200);
+                    gamepad2.rumble(1, 1, 200);
+                    prevDistance = distance;
+                }
+
+                if (driveTrain.isStalled()) {
+                    RUN.addData("Drivetrain is stalled");
+                    gamepad1.rumble(0.5, 1, 1000);
+                    gamepad2.rumble(0.5, 1, 1000);
+                }
+
+                if(gamepad1.right_trigger > 0) {
+                    gamepad2.rumble(gamepad1.right_trigger, gamepad1.right_trigger, 1);
+                }
+
+                duckSpinnerControl();
+
+                globalPowerFactorControl();
+
+                // Options re-zeroes the field heading on whatever the robot faces, share toggles field-centric driving.
+                if (gamepad1.options) driveTrain.resetHeading();
+                if (gamepad1.share && !lastShare) fieldCentric = !fieldCentric;
+                lastShare = gamepad1.share;
+                double forwardPower = forwardInput.update(gamepad1.left_stick_y, globalPowerFactor);
+                double sidePower = turnInput.update(gamepad1.right_stick_x);
+                double strafePower = strafeInput.update(gamepad1.left_stick_x, globalPowerFactor);
+                if (fieldCentric) driveTrain.driveFieldCentric(forwardPower, sidePower, strafePower);
+                else driveTrain.driveRobotCentric(forwardPower, sidePower, strafePower);
+
+                armControl();
+
+                collectorControl();
+
+                Logging();
             }
-
-            if(gamepad1.right_trigger > 0) {
-                gamepad2.rumble(gamepad1.right_trigger, gamepad1.right_trigger, 1);
-            }
-
-            duckSpinnerControl();
-
-            globalPowerFactorControl();
-
-            driveTrain.driveRobotCentric(gamepad1.left_stick_y * globalPowerFactor, gamepad1.right_stick_x, gamepad1.left_stick_x * globalPowerFactor);
-
-            armControl();
-
-            collectorControl();
-
-            Logging();
+        } finally {
+            ImuSampler.stop();
+            BulkRead.disable();
+            Battery.disable();
         }
     }
 
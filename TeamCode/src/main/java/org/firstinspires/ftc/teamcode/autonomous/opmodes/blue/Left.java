@@ -7,14 +7,21 @@ import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
 import com.qualcomm.robotcore.hardware.DcMotor;
 import com.qualcomm.robotcore.hardware.DistanceSensor;
 import com.qualcomm.robotcore.hardware.TouchSensor;
+import com.z3db0y.susanalib.Battery;
+import com.z3db0y.susanalib.BulkRead;
+import com.z3db0y.susanalib.ImuSampler;
 import com.z3db0y.susanalib.Logger;
 import com.z3db0y.susanalib.MecanumDriveTrain;
 import com.z3db0y.susanalib.Motor;
+import com.z3db0y.susanalib.MotionScheduler;
+import com.z3db0y.susanalib.Path;
 
 import org.firstinspires.ftc.robotcore.external.hardware.camera.WebcamName;
 import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
 import org.firstinspires.ftc.teamcode.Configurable;
+import org.firstinspires.ftc.teamcode.autonomous.vision.CameraShutdown;
 import org.firstinspires.ftc.teamcode.autonomous.vision.TseDetector;
+import org.firstinspires.ftc.teamcode.autonomous.vision.VisionTimingReport;
 import org.openftc.easyopencv.OpenCvCamera;
 import org.openftc.easyopencv.OpenCvCameraFactory;
 import org.openftc.easyopencv.OpenCvCameraRotation;
@@ -22,7 +29,10 @@ import org.openftc.easyopencv.OpenCvWebcam;
 
 @Autonomous(name = "Blue Left", group = "FTC22Auto")
 public class Left extends LinearOpMode {
+    private static final Logger.Tag DISTANCE_TAG = Logger.tag("Left.driveBackWallDistance");
+    private static final Logger.Tag COLLECT_TAG = Logger.tag("Left.collectCube");
     TseDetector detector;
+    VisionTimingReport timing;
     Motor frontLeft;
     Motor frontRight;
     Motor backLeft;
@@ -47,6 +57,12 @@ public class Left extends LinearOpMode {
         arm = new Motor(hardwareMap, "arm");
         collector = new Motor(hardwareMap, "collector");
         duckSpinner = new Motor(hardwareMap, "duckSpinner");
+        BulkRead.enable(hardwareMap);
+        Battery.enable(hardwareMap);
+        // Configurable's collector and duck spinner powers shouldn't fade as the battery drains.
+        collector.setVoltageCompensation(true);
+        duckSpinner.setVoltageCompensation(true);
+        MotionScheduler.clear();
 
         // Motor reversing
         backLeft.setDirection(Motor.Direction.REVERSE);
@@ -70,30 +86,19 @@ public class Left extends LinearOpMode {
         parameters.accelUnit = BNO055IMU.AccelUnit.METERS_PERSEC_PERSEC;
         parameters.angleUnit = BNO055IMU.AngleUnit.DEGREES;
         imu.initialize(parameters);
+        ImuSampler.start(imu, Configurable.imuSampleRate);
     }
 
+    // Through the scheduler, so the touch sensor is read fresh from the bulk cache every cycle.
     private void lowerArm() {
         arm.setHoldPosition(false);
-        arm.setTargetPosition(0);
-        arm.setRunMode(DcMotor.RunMode.RUN_TO_POSITION);
-        while (!armTouchSensor.isPressed()) {
-            arm.setPower(1);
-        }
-        arm.resetEncoder();
-        arm.setPower(0);
+        arm.home(armTouchSensor, 1);
     }
 
+    // Carries on while the drive moves after it are awaited.
     private void lowerArmAsync() {
         arm.setHoldPosition(false);
-        new Thread(() -> {
-            arm.setTargetPosition(0);
-            arm.setRunMode(DcMotor.RunMode.RUN_TO_POSITION);
-            while (!armTouchSensor.isPressed()) {
-                arm.setPower(1);
-            }
-            arm.resetEncoder();
-            arm.setPower(0);
-        }).start();
+        arm.homeAsync(armTouchSensor, 1);
     }
 
     private void collectCube(double power) {
@@ -105,19 +110,19 @@ public class Left extends LinearOpMode {
         backRight.setRunMode(DcMotor.RunMode.RUN_USING_ENCODER);
         driveTrain.setPower(-power, -power, -power, -power);
         collector.setPower(-1);
-        double currentAngle = imu.getAngularOrientation().firstAngle;
+        double currentAngle = driveTrain.odometry.getHeading();
         do {
-            Logger.addData("Initial Distance: " + initialDistance);
-            Logger.addData("Distance: " + cargoDetector.getDistance(DistanceUnit.CM));
+            COLLECT_TAG.addData("Initial Distance: ", initialDistance);
+            COLLECT_TAG.addData("Distance: ", cargoDetector.getDistance(DistanceUnit.CM));
             Logger.update();
             if (initialDistance - cargoDetector.getDistance(DistanceUnit.CM) < 2) {
                 driveTrain.driveCM(25, 0.2);
             }
             if (initialDistance - cargoDetector.getDistance(DistanceUnit.CM) < 2) {
-                driveTrain.turn(currentAngle - 8, 0.1, 1);
+                driveTrain.turn(currentAngle - 8, Configurable.turnPower, 1);
             }
             if (initialDistance - cargoDetector.getDistance(DistanceUnit.CM) < 2) {
-                driveTrain.turn(currentAngle + 8, 0.1, 1);
+                driveTrain.turn(currentAngle + 8, Configurable.turnPower, 1);
             }
         } while (initialDistance - cargoDetector.getDistance(DistanceUnit.CM) < 2);
         collector.setPower(0);
@@ -140,14 +145,15 @@ public class Left extends LinearOpMode {
         while (backDistance.getDistance(DistanceUnit.CM) < distance) {
             driveTrain.setPowerAll(-power);
         }
-        driveTrain.turn(0, 0.1, 1);
+        driveTrain.turn(0, Configurable.turnPower, 1);
         driveTrain.hold();
     }
 
     private void driveBackWallDistance(double distance) {
         driveTrain.runOnEncoders();
-        while (backDistance.getDistance(DistanceUnit.CM) > distance) {
-            Logger.addData("Distance: " + backDistance.getDistance(DistanceUnit.CM));
+        double current;
+        while ((current = backDistance.getDistance(DistanceUnit.CM)) > distance) {
+            DISTANCE_TAG.addData("Distance: ", current);
             Logger.update();
             driveTrain.setPowerAll(0.2);
         }
@@ -164,16 +170,36 @@ public class Left extends LinearOpMode {
         });
     }
 
+    // Subclasses extend runAutonomous(), so the cleanup here runs after everything they add.
     @Override
     public void runOpMode() {
+        try {
+            runAutonomous();
+        } finally {
+            // The 30s stop interrupts the autonomous, so the timings are written here and not at the end of it.
+            if (timing != null) timing.dump();
+            ImuSampler.stop();
+            BulkRead.disable();
+            Battery.disable();
+        }
+    }
+
+    protected void runAutonomous() {
         initHardware();
 
         Logger.setTelemetry(telemetry);
         driveTrain = new MecanumDriveTrain(frontLeft, frontRight, backLeft, backRight, imu);
         driveTrain.ratio = Configurable.driveGearRatio;
         driveTrain.wheelRadius = Configurable.wheelRadius;
+        driveTrain.maxVelocity = Configurable.driveMaxVelocity;
+        driveTrain.maxAcceleration = Configurable.driveMaxAcceleration;
+        driveTrain.maxJerk = Configurable.driveMaxJerk;
+        driveTrain.setFeedforward(Configurable.driveMotorKS, Configurable.driveMotorKV, Configurable.driveMotorKA);
+        driveTrain.turnRadius = Configurable.centerToWheel;
 
         detector = new TseDetector();
+        detector.setPreviewEnabled(Configurable.visionPreview);
+        timing = VisionTimingReport.schedule(detector);
         int cameraMonitorViewId = hardwareMap.appContext.getResources().getIdentifier("cameraMonitorViewId", "id", hardwareMap.appContext.getPackageName());
         OpenCvWebcam webcam = OpenCvCameraFactory.getInstance().createWebcam(hardwareMap.get(WebcamName.class, "Webcam 1"), cameraMonitorViewId);
         webcam.setPipeline(detector);
@@ -191,20 +217,18 @@ public class Left extends LinearOpMode {
         });
 
         waitForStart();
+        CameraShutdown.schedule(webcam, detector, Configurable.visionSettleFrames, Configurable.visionMinConfidence);
         startTimer();
         TseDetector.Location itemPos = detector.getLocation();
         if (itemPos != null) {
-            Logger.addData("Detected Cargo: " + itemPos);
+            Logger.addData("Detected Cargo: " + itemPos + " (" + Math.round(detector.getConfidence() * 100) + "%)");
         } else {
             itemPos = TseDetector.Location.CENTER;
             Logger.addData("Fallback to CENTER");
         }
         Logger.update();
 
-        driveTrain.driveCM(15, 0.4);
-        driveTrain.turn(-90, 0.1, 1);
-        driveTrain.driveCM(76, 0.4);
-        driveTrain.turn(0, 0.1, 1);
+        driveTrain.followPath(new Path().straight(15).turnTo(-90).straight(76).turnTo(0), 0.4);
         switch (itemPos) {
             case LEFT:
                 arm.runToPositionAsync(Configurable.armLowPosition, 1);
@@ -224,24 +248,23 @@ public class Left extends LinearOpMode {
         }
         driveTrain.driveCM(-15, 0.3);
         arm.runToPositionAsync(Configurable.armHighPosition, 1);
-        driveTrain.turn(90, 0.1, 1);
-        driveTrain.driveCM(250, 0.6);
+        driveTrain.followPath(new Path().turnTo(90).straight(250), 0.6);
         lowerArm();
-        driveTrain.turn(105, 0.1, 1);
+        driveTrain.turn(105, Configurable.turnPower, 1);
         collectCube(0.2);
         if (timer < 5) {
             this.stop();
         }
         arm.runToPositionAsync(Configurable.armHighPosition, 1);
-        driveTrain.turn(-90, 0.1, 1);
+        driveTrain.turn(-90, Configurable.turnPower, 1);
         driveTrain.driveCM(300, 0.6);
-        driveTrain.turn(0, 0.1, 1);
+        driveTrain.turn(0, Configurable.turnPower, 1);
         driveToShippingHub(0.2, Configurable.distanceToShippingHubBlueHigh);
         releaseCube(Configurable.disposeLowSpeed);
         driveTrain.runOnEncoders();
         driveBackWallDistance(Configurable.distanceFromBackWallBlue);
         arm.runToPositionAsync(Configurable.armHighPosition, 1);
-        driveTrain.turn(90, 0.1, 1);
+        driveTrain.turn(90, Configurable.turnPower, 1);
         driveTrain.driveCM(270, 0.6);
         lowerArm();
     }
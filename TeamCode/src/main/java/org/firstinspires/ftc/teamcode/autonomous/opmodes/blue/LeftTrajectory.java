@@ -0,0 +1,75 @@
+package org.firstinspires.ftc.teamcode.autonomous.opmodes.blue;
+
+import com.acmerobotics.dashboard.FtcDashboard;
+import com.qualcomm.robotcore.eventloop.opmode.Autonomous;
+import com.z3db0y.susanalib.Logger;
+import com.z3db0y.susanalib.MotionScheduler;
+
+import org.firstinspires.ftc.robotcore.external.hardware.camera.WebcamName;
+import org.firstinspires.ftc.teamcode.Configurable;
+import org.firstinspires.ftc.teamcode.autonomous.roadrunner.AutonomousTrajectories;
+import org.firstinspires.ftc.teamcode.autonomous.roadrunner.CompiledTrajectory;
+import org.firstinspires.ftc.teamcode.autonomous.roadrunner.SusanaMecanumDrive;
+import org.firstinspires.ftc.teamcode.autonomous.vision.CameraShutdown;
+import org.firstinspires.ftc.teamcode.autonomous.vision.TseDetector;
+import org.firstinspires.ftc.teamcode.autonomous.vision.VisionTimingReport;
+import org.openftc.easyopencv.OpenCvCamera;
+import org.openftc.easyopencv.OpenCvCameraFactory;
+import org.openftc.easyopencv.OpenCvCameraRotation;
+import org.openftc.easyopencv.OpenCvWebcam;
+
+@Autonomous(name = "Blue Left Trajectory", group = "FTC22Auto_RR")
+public class LeftTrajectory extends Left {
+
+    @Override
+    protected void runAutonomous() {
+        initHardware();
+        Logger.setTelemetry(telemetry);
+        SusanaMecanumDrive drive = new SusanaMecanumDrive(frontLeft, frontRight, backLeft, backRight, imu);
+
+        detector = new TseDetector();
+        detector.setPreviewEnabled(Configurable.visionPreview);
+        timing = VisionTimingReport.schedule(detector);
+        int cameraMonitorViewId = hardwareMap.appContext.getResources().getIdentifier("cameraMonitorViewId", "id", hardwareMap.appContext.getPackageName());
+        OpenCvWebcam webcam = OpenCvCameraFactory.getInstance().createWebcam(hardwareMap.get(WebcamName.class, "Webcam 1"), cameraMonitorViewId);
+        webcam.setPipeline(detector);
+        webcam.openCameraDeviceAsync(new OpenCvCamera.AsyncCameraOpenListener() {
+            @Override
+            public void onOpened() {
+                webcam.startStreaming(320, 240, OpenCvCameraRotation.UPRIGHT);
+                FtcDashboard.getInstance().startCameraStream(webcam, 0);
+            }
+
+            @Override
+            public void onError(int errorCode) {
+
+            }
+        });
+
+        // Everything that can be computed is done here, the match start only has to pick a trajectory.
+        AutonomousTrajectories trajectories = AutonomousTrajectories.load(drive, AutonomousTrajectories.Alliance.BLUE, AutonomousTrajectories.StartPosition.LEFT);
+        Logger.addData(trajectories.wasLoadedFromCache() ? "Trajectories loaded from cache" : "Trajectories built");
+        Logger.update();
+
+        waitForStart();
+        CameraShutdown.schedule(webcam, detector, Configurable.visionSettleFrames, Configurable.visionMinConfidence);
+        TseDetector.Location itemPos = detector.getLocation();
+        if (itemPos == null) itemPos = TseDetector.Location.CENTER;
+        CompiledTrajectory toHub = trajectories.get(itemPos);
+        drive.setPoseEstimate(toHub.start());
+
+        switch (itemPos) {
+            case LEFT:
+                arm.runToPositionAsync(Configurable.armLowPosition, 1);
+                break;
+            case RIGHT:
+                arm.runToPositionAsync(Configurable.armHighPosition, 1);
+                break;
+            case CENTER:
+                arm.runToPositionAsync(Configurable.armMidPosition, 1);
+                break;
+        }
+        drive.followTrajectory(toHub);
+        MotionScheduler.awaitAll();
+    }
+}
@@ -6,21 +6,30 @@ import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
 import com.qualcomm.robotcore.hardware.DcMotor;
 import com.qualcomm.robotcore.hardware.DistanceSensor;
 import com.qualcomm.robotcore.hardware.TouchSensor;
+import com.z3db0y.susanalib.Battery;
+import com.z3db0y.susanalib.BulkRead;
+import com.z3db0y.susanalib.ImuSampler;
 import com.z3db0y.susanalib.Logger;
 import com.z3db0y.susanalib.MecanumDriveTrain;
 import com.z3db0y.susanalib.Motor;
+import com.z3db0y.susanalib.MotionScheduler;
 
 import org.firstinspires.ftc.robotcore.external.hardware.camera.WebcamName;
 import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
 import org.firstinspires.ftc.teamcode.Configurable;
+import org.firstinspires.ftc.teamcode.autonomous.vision.CameraShutdown;
 import org.firstinspires.ftc.teamcode.autonomous.vision.TseDetector;
+import org.firstinspires.ftc.teamcode.autonomous.vision.VisionTimingReport;
 import org.openftc.easyopencv.OpenCvCamera;
 import org.openftc.easyopencv.OpenCvCameraFactory;
 import org.openftc.easyopencv.OpenCvCameraRotation;
 import org.openftc.easyopencv.OpenCvWebcam;
 
 public class Right extends LinearOpMode {
+    private static final Logger.Tag DISTANCE_TAG = Logger.tag("Right.driveBackWallDistance");
+    private static final Logger.Tag DUCK_TAG = Logger.tag("Right.runAutonomous");
     TseDetector detector;
+    VisionTimingReport timing;
     Motor frontLeft;
     Motor frontRight;
     Motor backLeft;
@@ -43,6 +52,12 @@ public class Right extends LinearOpMode {
         arm = new Motor(hardwareMap, "arm");
         collector = new Motor(hardwareMap, "collector");
         duckSpinner = new Motor(hardwareMap, "duckSpinner");
+        BulkRead.enable(hardwareMap);
+        Battery.enable(hardwareMap);
+        // Configurable's collector and duck spinner powers shouldn't fade as the battery drains.
+        collector.setVoltageCompensation(true);
+        duckSpinner.setVoltageCompensation(true);
+        MotionScheduler.clear();
 
         // Motor reversing
         backLeft.setDirection(Motor.Direction.REVERSE);
@@ -66,6 +81,7 @@ public class Right extends LinearOpMode {
         parameters.accelUnit = BNO055IMU.AccelUnit.METERS_PERSEC_PERSEC;
         parameters.angleUnit = BNO055IMU.AngleUnit.DEGREES;
         imu.initialize(parameters);
+        ImuSampler.start(imu, Configurable.imuSampleRate);
     }
 
     private void releaseCube(double collectorPower) {
@@ -83,42 +99,55 @@ public class Right extends LinearOpMode {
         while (backDistance.getDistance(DistanceUnit.CM) < distance) {
             driveTrain.setPowerAll(-power);
         }
-        driveTrain.turn(0, 0.1, 1);
+        driveTrain.turn(0, Configurable.turnPower, 1);
         driveTrain.hold();
     }
 
+    // Carries on while the drive moves after it are awaited.
     private void lowerArmAsync() {
         arm.setHoldPosition(false);
-        new Thread(() -> {
-            arm.setTargetPosition(0);
-            arm.setRunMode(DcMotor.RunMode.RUN_TO_POSITION);
-            while (!armTouchSensor.isPressed()) {
-                arm.setPower(1);
-            }
-            arm.resetEncoder();
-            arm.setPower(0);
-        }).start();
+        arm.homeAsync(armTouchSensor, 1);
     }
 
     private void driveBackWallDistance(double distance) {
-        while (backDistance.getDistance(DistanceUnit.CM) > distance) {
-            Logger.addData("Distance: " + backDistance.getDistance(DistanceUnit.CM));
+        double current;
+        while ((current = backDistance.getDistance(DistanceUnit.CM)) > distance) {
+            DISTANCE_TAG.addData("Distance: ", current);
             Logger.update();
             driveTrain.setPowerAll(0.2);
         }
         driveTrain.hold();
     }
 
+    // Subclasses extend runAutonomous(), so the cleanup here runs after everything they add.
     @Override
     public void runOpMode() throws InterruptedException {
+        try {
+            runAutonomous();
+        } finally {
+            // The 30s stop interrupts the autonomous, so the timings are written here and not at the end of it.
+            if (timing != null) timing.dump();
+            ImuSampler.stop();
+            BulkRead.disable();
+            Battery.disable();
+        }
+    }
+
+    protected void runAutonomous() throws InterruptedException {
         initHardware();
 
         Logger.setTelemetry(telemetry);
         driveTrain = new MecanumDriveTrain(frontLeft, frontRight, backLeft, backRight, imu);
         driveTrain.ratio = Configurable.driveGearRatio;
         driveTrain.wheelRadius = Configurable.wheelRadius;
+        driveTrain.maxVelocity = Configurable.driveMaxVelocity;
+        driveTrain.maxAcceleration = Configurable.driveMaxAcceleration;
+        driveTrain.maxJerk = Configurable.driveMaxJerk;
+        driveTrain.setFeedforward(Configurable.driveMotorKS, Configurable.driveMotorKV, Configurable.driveMotorKA);
 
         detector = new TseDetector();
+        detector.setPreviewEnabled(Configurable.visionPreview);
+        timing = VisionTimingReport.schedule(detector);
         int cameraMonitorViewId = hardwareMap.appContext.getResources().getIdentifier("cameraMonitorViewId", "id", hardwareMap.appContext.getPackageName());
         OpenCvWebcam webcam = OpenCvCameraFactory.getInstance().createWebcam(hardwareMap.get(WebcamName.class, "Webcam 1"), cameraMonitorViewId);
         webcam.setPipeline(detector);
@@ -136,9 +165,10 @@ public class Right extends LinearOpMode {
         });
 
         waitForStart();
+        CameraShutdown.schedule(webcam, detector, Configurable.visionSettleFrames, Configurable.visionMinConfidence);
         TseDetector.Location itemPos = detector.getLocation();
         if (itemPos != null) {
-            Logger.addData("Detected Cargo: " + itemPos);
+            Logger.addData("Detected Cargo: " + itemPos + " (" + Math.round(detector.getConfidence() * 100) + "%)");
             Logger.update();
         }
         else {
@@ -146,9 +176,9 @@ public class Right extends LinearOpMode {
         }
 
         driveTrain.driveCM(15, 0.4);
-        driveTrain.turn(91, 0.1, 1);
+        driveTrain.turn(91, Configurable.turnPower, 1);
         driveTrain.driveCM(76, 0.4);
-        driveTrain.turn(0, 0.1, 1);
+        driveTrain.turn(0, Configurable.turnPower, 1);
         switch (itemPos) {
             case LEFT:
                 arm.runToPositionAsync(Configurable.armLowPosition, 1);
@@ -168,9 +198,9 @@ public class Right extends LinearOpMode {
         }
         driveBackWallDistance(Configurable.distanceFromBackWallBlue);
         lowerArmAsync();
-        driveTrain.turn(-90, 0.1, 1);
+        driveTrain.turn(-90, Configurable.turnPower, 1);
         driveTrain.driveCM(65, 0.3);
-        driveTrain.turn(-90, 0.1, 1);
+        driveTrain.turn(-90, Configurable.turnPower, 1);
         driveTrain.driveCM(65, 0.1);
 
         com.z3db0y.susanalib.Thread.sleep(300);
@@ -182,14 +212,15 @@ public class Right extends LinearOpMode {
         while (Math.abs(duckSpinner.getCurrentPosition()) - Math.abs(Configurable.duckSpinnerTicks) < 0) {
             if (duckSpinner.isStalled()) {
                 duckSpinnerPower += 0.05;
-                Logger.addData("Duck Spinner Power: " + duckSpinnerPower);
+                DUCK_TAG.addData("Duck Spinner Power: ", duckSpinnerPower);
             }
             if(!driveTrain.isStalled()) {
                 driveTrain.resetStallDetector();
                 driveTrain.strafeCM(MecanumDriveTrain.Side.RIGHT ,5, 0.1);
             }
-            Logger.addData(duckSpinner.getCurrentPosition());
+            DUCK_TAG.addData("", duckSpinner.getCurrentPosition());
             Logger.update();
+            BulkRead.clear();
             duckSpinner.setPower(-duckSpinnerPower);
         }
         duckSpinner.setPower(0);
@@ -3,15 +3,17 @@ package org.firstinspires.ftc.teamcode.autonomous.opmodes.blue;
 import com.qualcomm.robotcore.eventloop.opmode.Autonomous;
 import com.z3db0y.susanalib.MecanumDriveTrain;
 
+import org.firstinspires.ftc.teamcode.Configurable;
+
 @Autonomous(name = "Blue Right Storage Unit", group = "FTC22Auto_Store")
 public class RightStorageUnit extends Right {
 
     @Override
-    public void runOpMode() throws InterruptedException {
-        super.runOpMode();
-        driveTrain.turn(180, 0.1, 1);
+    protected void runAutonomous() throws InterruptedException {
+        super.runAutonomous();
+        driveTrain.turn(180, Configurable.turnPower, 1);
         driveTrain.driveCM(-37, 0.5);
-        driveTrain.turn(180, 0.1, 1);
+        driveTrain.turn(180, Configurable.turnPower, 1);
         driveTrain.strafeCM(MecanumDriveTrain.Side.LEFT ,10, 0.2);
     }
 }
\ No newline at end of file
@@ -8,13 +8,13 @@ import org.firstinspires.ftc.teamcode.Configurable;
 public class RightWarehouse extends Right {
 
     @Override
-    public void runOpMode() throws InterruptedException {
-        super.runOpMode();
+    protected void runAutonomous() throws InterruptedException {
+        super.runAutonomous();
         driveTrain.driveCM(-10, 0.3);
-        driveTrain.turn(85, 0.1, 1);
+        driveTrain.turn(85, Configurable.turnPower, 1);
         driveTrain.driveCM(100, 0.4);
         arm.runToPositionAsync(Configurable.armHighPosition, 1);
-        driveTrain.turn(85, 0.1, 1);
+        driveTrain.turn(85, Configurable.turnPower, 1);
         driveTrain.driveCM(280, 0.4);
     }
 }
@@ -8,14 +8,14 @@ import org.firstinspires.ftc.teamcode.Configurable;
 public class LeftWarehouse extends Left {
 
     @Override
-    public void runOpMode() {
-        super.runOpMode();
+    protected void runAutonomous() {
+        super.runAutonomous();
         driveTrain.driveCM(-10, 0.3);
         arm.runToPositionAsync(Configurable.armHighPosition, 1);
         arm.setHoldPosition(true);
-        driveTrain.turn(-105, 0.1, 1);
+        driveTrain.turn(-105, Configurable.turnPower, 1);
         driveTrain.driveCM(150, 0.4);
-        driveTrain.turn(-90, 0.1, 1);
+        driveTrain.turn(-90, Configurable.turnPower, 1);
         driveTrain.driveCM(150, 0.4);
     }
 }
@@ -7,14 +7,20 @@ import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
 import com.qualcomm.robotcore.hardware.DcMotor;
 import com.qualcomm.robotcore.hardware.DistanceSensor;
 import com.qualcomm.robotcore.hardware.TouchSensor;
+import com.z3db0y.susanalib.Battery;
+import com.z3db0y.susanalib.BulkRead;
+import com.z3db0y.susanalib.ImuSampler;
 import com.z3db0y.susanalib.Logger;
 import com.z3db0y.susanalib.MecanumDriveTrain;
 import com.z3db0y.susanalib.Motor;
+import com.z3db0y.susanalib.MotionScheduler;
 
 import org.firstinspires.ftc.robotcore.external.hardware.camera.WebcamName;
 import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
 import org.firstinspires.ftc.teamcode.Configurable;
+import org.firstinspires.ftc.teamcode.autonomous.vision.CameraShutdown;
 import org.firstinspires.ftc.teamcode.autonomous.vision.TseDetector;
+import org.firstinspires.ftc.teamcode.autonomous.vision.VisionTimingReport;
 import org.openftc.easyopencv.OpenCvCamera;
 import org.openftc.easyopencv.OpenCvCameraFactory;
 import org.openftc.easyopencv.OpenCvCameraRotation;
@@ -22,7 +28,10 @@ import org.openftc.easyopencv.OpenCvWebcam;
 
 @Autonomous(name = "Red Right", group = "FTC22Auto")
 public class Right extends LinearOpMode {
+    private static final Logger.Tag DISTANCE_TAG = Logger.tag("Right.driveBackWallDistance");
+    private static final Logger.Tag COLLECT_TAG = Logger.tag("Right.collectCube");
     TseDetector detector;
+    VisionTimingReport timing;
     Motor frontLeft;
     Motor frontRight;
     Motor backLeft;
@@ -47,6 +56,12 @@ public class Right extends LinearOpMode {
         arm = new Motor(hardwareMap, "arm");
         collector = new Motor(hardwareMap, "collector");
         duckSpinner = new Motor(hardwareMap, "duckSpinner");
+        BulkRead.enable(hardwareMap);
+        Battery.enable(hardwareMap);
+        // Configurable's collector and duck spinner powers shouldn't fade as the battery drains.
+        collector.setVoltageCompensation(true);
+        duckSpinner.setVoltageCompensation(true);
+        MotionScheduler.clear();
 
         // Motor reversing
         backLeft.setDirection(Motor.Direction.REVERSE);
@@ -70,30 +85,19 @@ public class Right extends LinearOpMode {
         parameters.accelUnit = BNO055IMU.AccelUnit.METERS_PERSEC_PERSEC;
         parameters.angleUnit = BNO055IMU.AngleUnit.DEGREES;
         imu.initialize(parameters);
+        ImuSampler.start(imu, Configurable.imuSampleRate);
     }
 
+    // Through the scheduler, so the touch sensor is read fresh from the bulk cache every cycle.
     private void lowerArm() {
         arm.setHoldPosition(false);
-        arm.setTargetPosition(0);
-        arm.setRunMode(DcMotor.RunMode.RUN_TO_POSITION);
-        while (!armTouchSensor.isPressed()) {
-            arm.setPower(1);
-        }
-        arm.resetEncoder();
-        arm.setPower(0);
+        arm.home(armTouchSensor, 1);
     }
 
+    // Carries on while the drive moves after it are awaited.
     private void lowerArmAsync() {
         arm.setHoldPosition(false);
-        new Thread(() -> {
-            arm.setTargetPosition(0);
-            arm.setRunMode(DcMotor.RunMode.RUN_TO_POSITION);
-            while (!armTouchSensor.isPressed()) {
-                arm.setPower(1);
-            }
-            arm.resetEncoder();
-            arm.setPower(0);
-        }).start();
+        arm.homeAsync(armTouchSensor, 1);
     }
 
     private void collectCube(double power) {
@@ -102,14 +106,14 @@ public class Right extends LinearOpMode {
         driveTrain.setPowerAll(-power);
         collector.setPower(-1);
         collector.resetStallDetection();
-        double currentAngle = imu.getAngularOrientation().firstAngle;
+        double currentAngle = driveTrain.odometry.getHeading();
         while (initialDistance - cargoDetector.getDistance(DistanceUnit.CM) < 2 && !collector.isStalled()) {
-            Logger.addData("Initial Distance: " + initialDistance);
-            Logger.addData("Distance: " + cargoDetector.getDistance(DistanceUnit.CM));
+            COLLECT_TAG.addData("Initial Distance: ", initialDistance);
+            COLLECT_TAG.addData("Distance: ", cargoDetector.getDistance(DistanceUnit.CM));
             Logger.update();
             driveTrain.driveCM(25, 0.2);
-            driveTrain.turn(currentAngle - 8, 0.1, 1);
-            driveTrain.turn(currentAngle + 8, 0.1, 1);
+            driveTrain.turn(currentAngle - 8, Configurable.turnPower, 1);
+            driveTrain.turn(currentAngle + 8, Configurable.turnPower, 1);
         }
         collector.setPower(0);
         driveTrain.hold();
@@ -131,13 +135,14 @@ public class Right extends LinearOpMode {
         while (backDistance.getDistance(DistanceUnit.CM) < distance) {
             driveTrain.setPowerAll(-power);
         }
-        driveTrain.turn(0, 0.1, 1);
+        driveTrain.turn(0, Configurable.turnPower, 1);
         driveTrain.hold();
     }
 
     private void driveBackWallDistance(double distance) {
-        while (backDistance.getDistance(DistanceUnit.CM) > distance) {
-            Logger.addData("Distance: " + backDistance.getDistance(DistanceUnit.CM));
+        double current;
+        while ((current = backDistance.getDistance(DistanceUnit.CM)) > distance) {
+            DISTANCE_TAG.addData("Distance: ", current);
             driveTrain.setPower(0.2, 0.2, 0.2, 0.2);
         }
         driveTrain.hold();
@@ -153,16 +158,35 @@ public class Right extends LinearOpMode {
         });
     }
 
+    // Subclasses extend runAutonomous(), so the cleanup here runs after everything they add.
     @Override
     public void runOpMode() {
+        try {
+            runAutonomous();
+        } finally {
+            // The 30s stop interrupts the autonomous, so the timings are written here and not at the end of it.
+            if (timing != null) timing.dump();
+            ImuSampler.stop();
+            BulkRead.disable();
+            Battery.disable();
+        }
+    }
+
+    protected void runAutonomous() {
         initHardware();
 
         Logger.setTelemetry(telemetry);
         driveTrain = new MecanumDriveTrain(frontLeft, frontRight, backLeft, backRight, imu);
         driveTrain.ratio = Configurable.driveGearRatio;
         driveTrain.wheelRadius = Configurable.wheelRadius;
+        driveTrain.maxVelocity = Configurable.driveMaxVelocity;
+        driveTrain.maxAcceleration = Configurable.driveMaxAcceleration;
+        driveTrain.maxJerk = Configurable.driveMaxJerk;
+        driveTrain.setFeedforward(Configurable.driveMotorKS, Configurable.driveMotorKV, Configurable.driveMotorKA);
 
         detector = new TseDetector();
+        detector.setPreviewEnabled(Configurable.visionPreview);
+        timing = VisionTimingReport.schedule(detector);
         int cameraMonitorViewId = hardwareMap.appContext.getResources().getIdentifier("cameraMonitorViewId", "id", hardwareMap.appContext.getPackageName());
         OpenCvWebcam webcam = OpenCvCameraFactory.getInstance().createWebcam(hardwareMap.get(WebcamName.class, "Webcam 1"), cameraMonitorViewId);
         webcam.setPipeline(detector);
@@ -180,10 +204,11 @@ public class Right extends LinearOpMode {
         });
 
         waitForStart();
+        CameraShutdown.schedule(webcam, detector, Configurable.visionSettleFrames, Configurable.visionMinConfidence);
         startTimer();
         TseDetector.Location itemPos = detector.getLocation();
         if(itemPos != null) {
-            Logger.addData("Detected Cargo: " + itemPos);
+            Logger.addData("Detected Cargo: " + itemPos + " (" + Math.round(detector.getConfidence() * 100) + "%)");
         }
         else {
             itemPos = TseDetector.Location.CENTER;
@@ -192,9 +217,9 @@ public class Right extends LinearOpMode {
         Logger.update();
 
         driveTrain.driveCM(15, 0.4);
-        driveTrain.turn(90, 0.1, 1);
+        driveTrain.turn(90, Configurable.turnPower, 1);
         driveTrain.driveCM(76, 0.4);
-        driveTrain.turn(0, 0.1, 1);
+        driveTrain.turn(0, Configurable.turnPower, 1);
         switch (itemPos) {
             case LEFT:
                 arm.runToPositionAsync(Configurable.armLowPosition, 1);
@@ -214,23 +239,23 @@ public class Right extends LinearOpMode {
         }
         driveBackWallDistance(Configurable.distanceFromBackWallRed);
         arm.runToPositionAsync(Configurable.armHighPosition, 1);
-        driveTrain.turn(-90, 0.1, 1);
+        driveTrain.turn(-90, Configurable.turnPower, 1);
         driveTrain.driveCM(250, 0.6);
         lowerArm();
-        driveTrain.turn(-105, 0.1, 1);
+        driveTrain.turn(-105, Configurable.turnPower, 1);
         collectCube(0.2);
         if (timer < 5) {
             this.stop();
         }
         arm.runToPositionAsync(Configurable.armHighPosition, 1);
-        driveTrain.turn(90, 0.1, 1);
+        driveTrain.turn(90, Configurable.turnPower, 1);
         driveTrain.driveCM(300, 0.6);
-        driveTrain.turn(0, 0.1, 1);
+        driveTrain.turn(0, Configurable.turnPower, 1);
         driveToShippingHub(0.2, Configurable.distanceToShippingHubRedHigh);
         releaseCube(Configurable.disposeHighSpeed);
         driveBackWallDistance(20);
         arm.runToPositionAsync(Configurable.armHighPosition, 1);
-        driveTrain.turn(-90, 0.1, 1);
+        driveTrain.turn(-90, Configurable.turnPower, 1);
         driveTrain.driveCM(270, 0.6);
         lowerArm();
     }
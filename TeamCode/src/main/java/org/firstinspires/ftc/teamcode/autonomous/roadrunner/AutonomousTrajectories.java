@@ -0,0 +1,142 @@
+package org.firstinspires.ftc.teamcode.autonomous.roadrunner;
+
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+import com.acmerobotics.roadrunner.geometry.Vector2d;
+import com.acmerobotics.roadrunner.trajectory.Trajectory;
+
+import org.firstinspires.ftc.robotcore.internal.system.AppUtil;
+import org.firstinspires.ftc.teamcode.Configurable;
+import org.firstinspires.ftc.teamcode.autonomous.vision.TseDetector;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.zip.CRC32;
+
+// The opening of one autonomous, off the wall and out to the shipping hub, for each detected location, ready before the match starts.
+// Only that opening is precomputed, everything after the hub is still driven live. An opmode loads just its own alliance
+// and start position, each pair is cached in its own file keyed by a hash of Configurable, so later inits just read them back.
+public class AutonomousTrajectories {
+
+    public enum Alliance { RED, BLUE }
+
+    public enum StartPosition { LEFT, RIGHT }
+
+    static private final int FORMAT_VERSION = 2;
+    static private final double SAMPLE_SECONDS = 0.01;
+
+    static private final int VARIANTS = TseDetector.Location.values().length;
+    private final File cacheFile;
+    private final CompiledTrajectory[] trajectories = new CompiledTrajectory[VARIANTS];
+    private boolean loadedFromCache = false;
+
+    private AutonomousTrajectories(Alliance alliance, StartPosition start) {
+        this.cacheFile = new File(AppUtil.ROBOT_DATA_DIR, "trajectory-cache-" + alliance.name().toLowerCase() + "-" + start.name().toLowerCase() + ".bin");
+    }
+
+    public CompiledTrajectory get(TseDetector.Location location) {
+        return trajectories[location.ordinal()];
+    }
+
+    public boolean wasLoadedFromCache() {
+        return loadedFromCache;
+    }
+
+    // Call during init, it only builds the trajectories when Configurable changed since the cache was written.
+    public static AutonomousTrajectories load(SusanaMecanumDrive drive, Alliance alliance, StartPosition start) {
+        AutonomousTrajectories catalog = new AutonomousTrajectories(alliance, start);
+        long key = configurableHash();
+        if (catalog.read(key)) {
+            catalog.loadedFromCache = true;
+            return catalog;
+        }
+        for (TseDetector.Location location : TseDetector.Location.values()) {
+            Trajectory trajectory = build(drive, alliance, start, location);
+            catalog.trajectories[location.ordinal()] = CompiledTrajectory.compile(trajectory, SAMPLE_SECONDS);
+        }
+        catalog.write(key);
+        return catalog;
+    }
+
+    // Forward off the wall, strafe across towards the hub, then out until the back sensor would read the hub distance.
+    // Starting on the left means crossing to the right, the same as the turn-based autos.
+    static private Trajectory build(SusanaMecanumDrive drive, Alliance alliance, StartPosition start, TseDetector.Location location) {
+        double side = start == StartPosition.LEFT ? -1 : 1;
+        return drive.trajectoryBuilder(new Pose2d(0, 0, 0))
+                .forward(Configurable.autoStartForward)
+                .lineToConstantHeading(new Vector2d(Configurable.autoStartForward, side * Configurable.autoCrossDistance))
+                .lineToConstantHeading(new Vector2d(hubDistance(alliance, location), side * Configurable.autoCrossDistance))
+                .build();
+    }
+
+    static private double hubDistance(Alliance alliance, TseDetector.Location location) {
+        boolean red = alliance == Alliance.RED;
+        switch (location) {
+            case LEFT: return red ? Configurable.distanceToShippingHubRedLow : Configurable.distanceToShippingHubBlueLow;
+            case RIGHT: return red ? Configurable.distanceToShippingHubRedHigh : Configurable.distanceToShippingHubBlueHigh;
+            default: return red ? Configurable.distanceToShippingHubRedMid : Configurable.distanceToShippingHubBlueMid;
+        }
+    }
+
+    // Every public static Configurable value goes into the key, so any dashboard tweak invalidates the cache.
+    static private long configurableHash() {
+        Field[] fields = Configurable.class.getFields();
+        Arrays.sort(fields, new Comparator<Field>() {
+            @Override
+            public int compare(Field a, Field b) {
+                return a.getName().compareTo(b.getName());
+            }
+        });
+        StringBuilder builder = new StringBuilder();
+        builder.append(FORMAT_VERSION).append(';').append(SAMPLE_SECONDS).append(';');
+        for (Field field : fields) {
+            if (!Modifier.isStatic(field.getModifiers())) continue;
+            try {
+                builder.append(field.getName()).append('=').append(field.get(null)).append(';');
+            } catch (IllegalAccessException e) {
+                builder.append(field.getName()).append(';');
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(builder.toString().getBytes());
+        return crc.getValue();
+    }
+
+    private boolean read(long key) {
+        if (!cacheFile.exists()) return false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+            if (in.readLong() != key || in.readInt() != VARIANTS) return false;
+            for (int i = 0; i < VARIANTS; i++) {
+                trajectories[i] = CompiledTrajectory.read(in);
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            // Whatever is wrong with the file, it's a cache miss and the trajectories get built again.
+            return false;
+        }
+    }
+
+    // A failed write only costs the next init a rebuild.
+    private void write(long key) {
+        AppUtil.getInstance().ensureDirectoryExists(cacheFile.getParentFile());
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(cacheFile)))) {
+            out.writeLong(key);
+            out.writeInt(VARIANTS);
+            for (CompiledTrajectory trajectory : trajectories) {
+                trajectory.write(out);
+            }
+        } catch (IOException e) {
+            cacheFile.delete();
+        }
+    }
+
+}
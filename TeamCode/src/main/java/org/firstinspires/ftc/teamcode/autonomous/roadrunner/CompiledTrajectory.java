@@ -0,0 +1,108 @@
+package org.firstinspires.ftc.teamcode.autonomous.roadrunner;
+
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+import com.acmerobotics.roadrunner.trajectory.Trajectory;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+// A Roadrunner trajectory sampled into fixed time steps, field-frame pose, velocity and acceleration per step.
+// Following one is just table lookups, and it fits in a small binary file so it never has to be generated again.
+public class CompiledTrajectory {
+
+    static private final int FIELDS = 9;
+    // Far more than any autonomous needs, a cache file asking for more is corrupt.
+    static private final int MAX_SAMPLES = 1 << 20;
+
+    private final double dt;
+    private final float[] samples;
+    private final int count;
+
+    private CompiledTrajectory(double dt, float[] samples) {
+        this.dt = dt;
+        this.samples = samples;
+        this.count = samples.length / FIELDS;
+    }
+
+    public static CompiledTrajectory compile(Trajectory trajectory, double dt) {
+        int count = (int) Math.ceil(trajectory.duration() / dt) + 1;
+        float[] samples = new float[count * FIELDS];
+        for (int i = 0; i < count; i++) {
+            double t = Math.min(i * dt, trajectory.duration());
+            put(samples, i * FIELDS, trajectory.get(t));
+            put(samples, i * FIELDS + 3, trajectory.velocity(t));
+            put(samples, i * FIELDS + 6, trajectory.acceleration(t));
+        }
+        return new CompiledTrajectory(dt, samples);
+    }
+
+    static private void put(float[] samples, int offset, Pose2d pose) {
+        samples[offset] = (float) pose.getX();
+        samples[offset + 1] = (float) pose.getY();
+        samples[offset + 2] = (float) pose.getHeading();
+    }
+
+    public double duration() {
+        return (count - 1) * dt;
+    }
+
+    public Pose2d start() {
+        return poseAt(0);
+    }
+
+    public Pose2d end() {
+        return poseAt(duration());
+    }
+
+    public Pose2d poseAt(double t) {
+        return interpolate(t, 0, true);
+    }
+
+    public Pose2d velocityAt(double t) {
+        return interpolate(t, 3, false);
+    }
+
+    public Pose2d accelerationAt(double t) {
+        return interpolate(t, 6, false);
+    }
+
+    // Linear between samples, headings through the shorter way around.
+    private Pose2d interpolate(double t, int field, boolean angle) {
+        double position = Math.max(0, Math.min(t / dt, count - 1));
+        int i = (int) position;
+        int j = Math.min(i + 1, count - 1);
+        double f = position - i;
+        int a = i * FIELDS + field;
+        int b = j * FIELDS + field;
+        double headingDelta = samples[b + 2] - samples[a + 2];
+        if (angle) headingDelta = Math.atan2(Math.sin(headingDelta), Math.cos(headingDelta));
+        return new Pose2d(
+                samples[a] + (samples[b] - samples[a]) * f,
+                samples[a + 1] + (samples[b + 1] - samples[a + 1]) * f,
+                samples[a + 2] + headingDelta * f);
+    }
+
+    public void write(DataOutputStream out) throws IOException {
+        out.writeDouble(dt);
+        out.writeInt(samples.length);
+        for (float sample : samples) {
+            out.writeFloat(sample);
+        }
+    }
+
+    // A truncated or corrupt stream fails with an IOException, never with a bad allocation.
+    public static CompiledTrajectory read(DataInputStream in) throws IOException {
+        double dt = in.readDouble();
+        int length = in.readInt();
+        if (!(dt > 0) || Double.isInfinite(dt) || length < FIELDS || length > MAX_SAMPLES || length % FIELDS != 0) {
+            throw new IOException("Corrupt trajectory: dt " + dt + ", " + length + " samples");
+        }
+        float[] samples = new float[length];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = in.readFloat();
+        }
+        return new CompiledTrajectory(dt, samples);
+    }
+
+}
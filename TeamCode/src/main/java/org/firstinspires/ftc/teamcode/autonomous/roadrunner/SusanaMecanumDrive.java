@@ -0,0 +1,213 @@
+package org.firstinspires.ftc.teamcode.autonomous.roadrunner;
+
+import com.acmerobotics.roadrunner.control.PIDCoefficients;
+import com.acmerobotics.roadrunner.drive.DriveSignal;
+import com.acmerobotics.roadrunner.drive.MecanumDrive;
+import com.acmerobotics.roadrunner.followers.HolonomicPIDVAFollower;
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+import com.acmerobotics.roadrunner.kinematics.Kinematics;
+import com.acmerobotics.roadrunner.trajectory.Trajectory;
+import com.acmerobotics.roadrunner.trajectory.TrajectoryBuilder;
+import com.acmerobotics.roadrunner.trajectory.constraints.AngularVelocityConstraint;
+import com.acmerobotics.roadrunner.trajectory.constraints.MecanumVelocityConstraint;
+import com.acmerobotics.roadrunner.trajectory.constraints.MinVelocityConstraint;
+import com.acmerobotics.roadrunner.trajectory.constraints.ProfileAccelerationConstraint;
+import com.acmerobotics.roadrunner.trajectory.constraints.TrajectoryAccelerationConstraint;
+import com.acmerobotics.roadrunner.trajectory.constraints.TrajectoryVelocityConstraint;
+import com.qualcomm.hardware.bosch.BNO055IMU;
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.z3db0y.susanalib.BulkRead;
+import com.z3db0y.susanalib.Clock;
+import com.z3db0y.susanalib.ImuSampler;
+import com.z3db0y.susanalib.MotionCommand;
+import com.z3db0y.susanalib.MotionScheduler;
+import com.z3db0y.susanalib.Motor;
+
+import org.firstinspires.ftc.teamcode.Configurable;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Roadrunner drive on top of susanalib motors. Distances are in cm like the rest of TeamCode, headings in radians.
+// Wheel positions, velocities and the heading are read into one snapshot per BulkRead cycle, however often Roadrunner asks.
+// Every call still gets its own list, the localizer keeps the last one it was handed to diff the next against.
+public class SusanaMecanumDrive extends MecanumDrive {
+
+    // Roadrunner's wheel order: front left, rear left, rear right, front right.
+    private final Motor[] motors;
+    private final BNO055IMU imu;
+    private final double ticksPerCm;
+    private final double[] wheelPositions = new double[4];
+    private final double[] wheelVelocities = new double[4];
+    private double heading;
+    private long snapshotCycle = -1;
+
+    private final HolonomicPIDVAFollower follower;
+    private final TrajectoryVelocityConstraint velocityConstraint;
+    private final TrajectoryAccelerationConstraint accelerationConstraint;
+
+    public SusanaMecanumDrive(Motor frontLeft, Motor frontRight, Motor backLeft, Motor backRight, BNO055IMU imu) {
+        // Full power is the motor's encoder free speed, 6000 rpm * 28 ticks for a bare HD Hex.
+        // trackWidth = wheelBase = centerToWheel makes Roadrunner's (trackWidth + wheelBase) / 2 the wheel travel per radian.
+        super(ticksPerCm() / 2800, Configurable.driveKA, Configurable.driveKStatic,
+                Configurable.centerToWheel, Configurable.centerToWheel, Configurable.driveLateralMultiplier);
+        this.motors = new Motor[]{frontLeft, backLeft, backRight, frontRight};
+        this.imu = imu;
+        this.ticksPerCm = ticksPerCm();
+        for (Motor motor : motors) {
+            motor.setRunMode(DcMotor.RunMode.RUN_USING_ENCODER);
+        }
+
+        follower = new HolonomicPIDVAFollower(
+                new PIDCoefficients(Configurable.trajectoryTranslationalP, 0, 0),
+                new PIDCoefficients(Configurable.trajectoryTranslationalP, 0, 0),
+                new PIDCoefficients(Configurable.trajectoryHeadingP, 0, 0),
+                new Pose2d(1, 1, Math.toRadians(2)), 0.5);
+        velocityConstraint = new MinVelocityConstraint(Arrays.asList(
+                new AngularVelocityConstraint(Math.toRadians(Configurable.trajectoryMaxAngularVelocity)),
+                new MecanumVelocityConstraint(Configurable.driveMaxVelocity, Configurable.centerToWheel)
+        ));
+        accelerationConstraint = new ProfileAccelerationConstraint(Configurable.driveMaxAcceleration);
+    }
+
+    static private double ticksPerCm() {
+        return 28 * Configurable.driveGearRatio / (2 * Math.PI * Configurable.wheelRadius);
+    }
+
+    private void snapshot() {
+        if (BulkRead.isEnabled() && snapshotCycle == BulkRead.getCycle()) return;
+        snapshotCycle = BulkRead.getCycle();
+        for (int i = 0; i < motors.length; i++) {
+            // Forward is negative power in software, which the direction flips again on the hardware side.
+            int sign = -motors[i].getDirection().getMultiplier();
+            wheelPositions[i] = sign * motors[i].getCurrentPosition() / ticksPerCm;
+            wheelVelocities[i] = sign * motors[i].getVelocity() / ticksPerCm;
+        }
+        double degrees = ImuSampler.getLatest(imu).firstAngle;
+        heading = Math.toRadians(degrees);
+    }
+
+    @Override
+    public List<Double> getWheelPositions() {
+        snapshot();
+        return toList(wheelPositions);
+    }
+
+    @Override
+    public List<Double> getWheelVelocities() {
+        snapshot();
+        return toList(wheelVelocities);
+    }
+
+    static private List<Double> toList(double[] values) {
+        return Arrays.asList(values[0], values[1], values[2], values[3]);
+    }
+
+    @Override
+    public double getRawExternalHeading() {
+        snapshot();
+        return heading;
+    }
+
+    @Override
+    public void setMotorPowers(double frontLeft, double rearLeft, double rearRight, double frontRight) {
+        motors[0].setPower(-frontLeft);
+        motors[1].setPower(-rearLeft);
+        motors[2].setPower(-rearRight);
+        motors[3].setPower(-frontRight);
+    }
+
+    public TrajectoryBuilder trajectoryBuilder(Pose2d startPose) {
+        return new TrajectoryBuilder(startPose, velocityConstraint, accelerationConstraint);
+    }
+
+    public TrajectoryBuilder trajectoryBuilder(Pose2d startPose, boolean reversed) {
+        return new TrajectoryBuilder(startPose, reversed, velocityConstraint, accelerationConstraint);
+    }
+
+    // Runs through MotionScheduler like the MecanumDriveTrain moves, so it can be awaited alongside arm motions.
+    private class TrajectoryMove extends MotionCommand {
+        final Trajectory trajectory;
+
+        TrajectoryMove(Trajectory trajectory) {
+            this.trajectory = trajectory;
+        }
+
+        @Override
+        protected void start() {
+            follower.followTrajectory(trajectory);
+        }
+
+        @Override
+        protected State update() {
+            updatePoseEstimate();
+            if (!follower.isFollowing()) return State.FINISHED;
+            setDriveSignal(follower.update(getPoseEstimate(), getPoseVelocity()));
+            return State.RUNNING;
+        }
+
+        @Override
+        protected void end(State state) {
+            setDrivePower(new Pose2d());
+        }
+    }
+
+    // Same job for a CompiledTrajectory: feedforward from the sampled field velocity and acceleration,
+    // plus a proportional correction on the robot-frame pose error.
+    private class CompiledMove extends MotionCommand {
+        final CompiledTrajectory trajectory;
+        long startTime;
+
+        CompiledMove(CompiledTrajectory trajectory) {
+            this.trajectory = trajectory;
+        }
+
+        @Override
+        protected void start() {
+            startTime = Clock.nanoTime();
+        }
+
+        @Override
+        protected State update() {
+            updatePoseEstimate();
+            double t = (Clock.nanoTime() - startTime) / 1e9;
+            Pose2d target = trajectory.poseAt(t);
+            Pose2d error = Kinematics.calculateRobotPoseError(target, getPoseEstimate());
+            if (t >= trajectory.duration() && ((error.vec().norm() <= 1 && Math.abs(error.getHeading()) <= Math.toRadians(2)) || t >= trajectory.duration() + 0.5)) {
+                return State.FINISHED;
+            }
+
+            Pose2d fieldVelocity = trajectory.velocityAt(t);
+            Pose2d velocity = Kinematics.fieldToRobotVelocity(target, fieldVelocity);
+            Pose2d acceleration = Kinematics.fieldToRobotAcceleration(target, fieldVelocity, trajectory.accelerationAt(t));
+            Pose2d correction = new Pose2d(
+                    error.getX() * Configurable.trajectoryTranslationalP,
+                    error.getY() * Configurable.trajectoryTranslationalP,
+                    error.getHeading() * Configurable.trajectoryHeadingP);
+            setDriveSignal(new DriveSignal(velocity.plus(correction), acceleration));
+            return State.RUNNING;
+        }
+
+        @Override
+        protected void end(State state) {
+            setDrivePower(new Pose2d());
+        }
+    }
+
+    public MotionCommand followTrajectoryAsync(CompiledTrajectory trajectory) {
+        return MotionScheduler.schedule(new CompiledMove(trajectory));
+    }
+
+    public void followTrajectory(CompiledTrajectory trajectory) {
+        MotionScheduler.await(followTrajectoryAsync(trajectory));
+    }
+
+    public MotionCommand followTrajectoryAsync(Trajectory trajectory) {
+        return MotionScheduler.schedule(new TrajectoryMove(trajectory));
+    }
+
+    public void followTrajectory(Trajectory trajectory) {
+        MotionScheduler.await(followTrajectoryAsync(trajectory));
+    }
+
+}
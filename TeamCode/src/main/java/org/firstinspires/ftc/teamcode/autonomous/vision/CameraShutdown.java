@@ -0,0 +1,48 @@
+package org.firstinspires.ftc.teamcode.autonomous.vision;
+
+import com.z3db0y.susanalib.MotionScheduler;
+
+import org.openftc.easyopencv.OpenCvCamera;
+
+// Closes the camera once the pipeline's result has held for a number of frames since this was created,
+// so the rest of autonomous doesn't pay for frames nobody reads. Runs as a MotionScheduler periodic task.
+public class CameraShutdown implements Runnable {
+
+    private final OpenCvCamera camera;
+    private final RegionPipeline pipeline;
+    private final int frames;
+    private final double minConfidence;
+    private final long armedAt;
+    private boolean closed = false;
+
+    private CameraShutdown(OpenCvCamera camera, RegionPipeline pipeline, int frames, double minConfidence) {
+        this.camera = camera;
+        this.pipeline = pipeline;
+        this.frames = frames;
+        this.minConfidence = minConfidence;
+        this.armedAt = pipeline.getFrameCount();
+    }
+
+    // Call right after waitForStart(), the frames are counted from here on.
+    public static CameraShutdown schedule(OpenCvCamera camera, RegionPipeline pipeline, int frames, double minConfidence) {
+        CameraShutdown shutdown = new CameraShutdown(camera, pipeline, frames, minConfidence);
+        MotionScheduler.addPeriodic(shutdown);
+        return shutdown;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void run() {
+        if (closed) return;
+        if (pipeline.getStableRegion() < 0 || pipeline.getConfidence() < minConfidence) return;
+        if (pipeline.getFrameCount() - Math.max(armedAt, pipeline.getStableSince()) < frames) return;
+        closed = true;
+        MotionScheduler.removePeriodic(this);
+        // Closing waits for the frame thread, so it can't happen on the control thread.
+        camera.closeCameraDeviceAsync(() -> { });
+    }
+
+}
@@ -0,0 +1,253 @@
+package org.firstinspires.ftc.teamcode.autonomous.vision;
+
+import com.z3db0y.susanalib.LatencyHistogram;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+import org.openftc.easyopencv.OpenCvPipeline;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+// Thresholds the regions in HSV and measures which fraction of each matched, subclasses turn that into a location.
+// Only the pixels inside the regions are converted and thresholded, the rest of the frame is never touched.
+// Every Mat, region view and Scalar is allocated once, so a frame creates no garbage for the GC to stop the robot over.
+// Drawing the preview is a separate step that can be switched off, then processFrame() hands the camera frame back as is.
+// Each frame's decision is one vote in a sliding window, the region with the most votes is the stable result.
+// Every stage of a frame is timed into its own histogram, so the expensive ones show up.
+public abstract class RegionPipeline extends OpenCvPipeline {
+
+    public enum Stage {
+        // Whole frames first, then the stages in the order they run. Convert, threshold and measure add up all regions.
+        FRAME, VIEWS, CONVERT, THRESHOLD, MEASURE, VOTE, PREVIEW
+    }
+
+    static final Scalar FOUND = new Scalar(0, 255, 0);
+    static final Scalar NOT_FOUND = new Scalar(255, 0, 0);
+    static private final Scalar BLACK = new Scalar(0);
+    static final int VOTE_WINDOW = 15;
+
+    private final Scalar lowHSV;
+    private final Scalar highHSV;
+    private final Rect[] regions;
+    private final double[] values;
+    private final Mat mask = new Mat();
+    private final Mat preview = new Mat();
+    // Views of each region in the camera frame and in the mask. The mask is only reallocated when the frame size
+    // changes, the frame views whenever the camera hands over a different buffer. HSV only exists per region.
+    private final Mat[] inputRegions;
+    private final Mat[] hsvRegions;
+    private final Mat[] maskRegions;
+    private long inputAddress = 0;
+    private int frameWidth = -1;
+    private int frameHeight = -1;
+    private volatile boolean previewEnabled = true;
+    // Ring of the last VOTE_WINDOW frame decisions, -1 for frames that didn't pick a region.
+    private final int[] votes = new int[VOTE_WINDOW];
+    private final int[] voteCounts;
+    private int voteIndex = 0;
+    private int voteTotal = 0;
+    private volatile boolean resetVotes = false;
+    // Written by the camera thread, read by the opmode.
+    private volatile int stableRegion = -1;
+    private volatile double confidence = 0;
+    private volatile long frameCount = 0;
+    private volatile long stableSince = 0;
+    private final LatencyHistogram[] stageTimes = new LatencyHistogram[Stage.values().length];
+    private volatile boolean timingEnabled = true;
+    private long lapStart = 0;
+
+    protected RegionPipeline(Scalar lowHSV, Scalar highHSV, Rect... regions) {
+        this.lowHSV = lowHSV;
+        this.highHSV = highHSV;
+        this.regions = regions;
+        this.values = new double[regions.length];
+        this.inputRegions = new Mat[regions.length];
+        this.hsvRegions = new Mat[regions.length];
+        this.maskRegions = new Mat[regions.length];
+        this.voteCounts = new int[regions.length];
+        for (int i = 0; i < regions.length; i++) {
+            hsvRegions[i] = new Mat();
+        }
+        for (Stage stage : Stage.values()) {
+            stageTimes[stage.ordinal()] = new LatencyHistogram(stage.name());
+        }
+    }
+
+    // Called with the matched fraction of every region, in constructor order. Returns this frame's region, or -1 for none.
+    protected abstract int select(double[] values);
+
+    public void setPreviewEnabled(boolean enabled) {
+        this.previewEnabled = enabled;
+    }
+
+    public boolean isPreviewEnabled() {
+        return previewEnabled;
+    }
+
+    // Fraction of the region that matched on the last frame.
+    public double getRegionValue(int region) {
+        return values[region];
+    }
+
+    public LatencyHistogram getStageTimes(Stage stage) {
+        return stageTimes[stage.ordinal()];
+    }
+
+    public void setTimingEnabled(boolean enabled) {
+        this.timingEnabled = enabled;
+    }
+
+    public void resetTimings() {
+        for (LatencyHistogram histogram : stageTimes) {
+            histogram.reset();
+        }
+    }
+
+    // Every stage's histogram, plus any extra ones to compare them with, for reading after the opmode.
+    public void writeTimings(File file, LatencyHistogram... extra) throws IOException {
+        try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+            out.printf("%s, %d frames%n", getClass().getSimpleName(), frameCount);
+            for (LatencyHistogram histogram : stageTimes) {
+                histogram.write(out);
+            }
+            for (LatencyHistogram histogram : extra) {
+                histogram.write(out);
+            }
+        }
+    }
+
+    @Override
+    public Mat processFrame(Mat input) {
+        boolean timing = timingEnabled;
+        boolean drawPreview = previewEnabled;
+        if (timing) lap();
+        long frameStart = lapStart;
+        updateViews(input);
+        if (timing) record(Stage.VIEWS, lap());
+        long convert = 0, threshold = 0, measure = 0;
+        for (int i = 0; i < regions.length; i++) {
+            Imgproc.cvtColor(inputRegions[i], hsvRegions[i], Imgproc.COLOR_RGB2HSV);
+            if (timing) convert += lap();
+            Core.inRange(hsvRegions[i], lowHSV, highHSV, maskRegions[i]);
+            if (timing) threshold += lap();
+            values[i] = (double) Core.countNonZero(maskRegions[i]) / regions[i].area();
+            if (timing) measure += lap();
+        }
+        vote(select(values));
+        if (timing) {
+            record(Stage.CONVERT, convert);
+            record(Stage.THRESHOLD, threshold);
+            record(Stage.MEASURE, measure);
+            record(Stage.VOTE, lap());
+        }
+
+        if (drawPreview) {
+            Imgproc.cvtColor(mask, preview, Imgproc.COLOR_GRAY2RGB);
+            int stable = stableRegion;
+            for (int i = 0; i < regions.length; i++) {
+                Imgproc.rectangle(preview, regions[i], i == stable ? FOUND : NOT_FOUND);
+            }
+            if (timing) record(Stage.PREVIEW, lap());
+        }
+        if (timing) record(Stage.FRAME, lapStart - frameStart);
+        return drawPreview ? preview : input;
+    }
+
+    // Time since the previous lap, in ns.
+    private long lap() {
+        long now = System.nanoTime();
+        long elapsed = now - lapStart;
+        lapStart = now;
+        return elapsed;
+    }
+
+    private void record(Stage stage, long nanos) {
+        stageTimes[stage.ordinal()].record(nanos);
+    }
+
+    private void vote(int region) {
+        if (resetVotes) {
+            resetVotes = false;
+            voteIndex = 0;
+            voteTotal = 0;
+            for (int i = 0; i < voteCounts.length; i++) {
+                voteCounts[i] = 0;
+            }
+        }
+        if (voteTotal == votes.length) {
+            int old = votes[voteIndex];
+            if (old >= 0) voteCounts[old]--;
+        } else {
+            voteTotal++;
+        }
+        votes[voteIndex] = region;
+        if (region >= 0) voteCounts[region]++;
+        voteIndex = (voteIndex + 1) % votes.length;
+
+        // A tie keeps the current result, so it doesn't flicker between two regions.
+        int best = stableRegion;
+        for (int i = 0; i < voteCounts.length; i++) {
+            if (voteCounts[i] > 0 && (best < 0 || voteCounts[i] > voteCounts[best])) best = i;
+        }
+        if (best >= 0 && voteCounts[best] == 0) best = -1;
+        long frame = frameCount + 1;
+        if (best != stableRegion) stableSince = frame;
+        confidence = best < 0 ? 0 : (double) voteCounts[best] / voteTotal;
+        stableRegion = best;
+        frameCount = frame;
+    }
+
+    // Starts the window over, from the next frame on.
+    public void resetVotes() {
+        resetVotes = true;
+    }
+
+    // Region with the most votes in the window, -1 before any frame picked one.
+    public int getStableRegion() {
+        return stableRegion;
+    }
+
+    // Share of the window's frames that voted for the stable region.
+    public double getConfidence() {
+        return confidence;
+    }
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    // Frame number at which the stable region last changed.
+    public long getStableSince() {
+        return stableSince;
+    }
+
+    private void updateViews(Mat input) {
+        if (input.cols() != frameWidth || input.rows() != frameHeight) {
+            frameWidth = input.cols();
+            frameHeight = input.rows();
+            mask.create(frameHeight, frameWidth, CvType.CV_8UC1);
+            // Outside the regions the mask is never written, it stays black in the preview.
+            mask.setTo(BLACK);
+            for (int i = 0; i < regions.length; i++) {
+                if (maskRegions[i] != null) maskRegions[i].release();
+                maskRegions[i] = mask.submat(regions[i]);
+            }
+            inputAddress = 0;
+        }
+        if (input.dataAddr() != inputAddress) {
+            for (int i = 0; i < regions.length; i++) {
+                if (inputRegions[i] != null) inputRegions[i].release();
+                inputRegions[i] = input.submat(regions[i]);
+            }
+            inputAddress = input.dataAddr();
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+package org.firstinspires.ftc.teamcode.autonomous.vision;
+
+import com.z3db0y.susanalib.LatencyHistogram;
+import com.z3db0y.susanalib.Logger;
+import com.z3db0y.susanalib.MotionScheduler;
+
+import org.firstinspires.ftc.robotcore.internal.system.AppUtil;
+
+import java.io.File;
+import java.io.IOException;
+
+// Puts a pipeline's stage timings on telemetry next to the control loop's period, and writes both to a file at the end.
+// Runs as a MotionScheduler periodic task, so the loop histogram is the time between control cycles.
+public class VisionTimingReport implements Runnable {
+
+    static private final Logger.Tag TAG = Logger.tag("Vision timing");
+    static private final RegionPipeline.Stage[] STAGES = RegionPipeline.Stage.values();
+
+    private final RegionPipeline pipeline;
+    private final LatencyHistogram loopTimes = new LatencyHistogram("LOOP");
+    // Only on telemetry until dump(), so later opmodes don't show stale timings.
+    private final Logger.Slot[] medians = new Logger.Slot[STAGES.length + 1];
+    private final Logger.Slot[] tails = new Logger.Slot[STAGES.length + 1];
+    private long lastRun = 0;
+
+    private VisionTimingReport(RegionPipeline pipeline) {
+        this.pipeline = pipeline;
+        for (int i = 0; i < STAGES.length; i++) {
+            medians[i] = Logger.slot(TAG, STAGES[i].name() + " p50 ms: ");
+            tails[i] = Logger.slot(TAG, STAGES[i].name() + " p99 ms: ");
+        }
+        medians[STAGES.length] = Logger.slot(TAG, "LOOP p50 ms: ");
+        tails[STAGES.length] = Logger.slot(TAG, "LOOP p99 ms: ");
+    }
+
+    public static VisionTimingReport schedule(RegionPipeline pipeline) {
+        VisionTimingReport report = new VisionTimingReport(pipeline);
+        MotionScheduler.addPeriodic(report);
+        return report;
+    }
+
+    @Override
+    public void run() {
+        long now = System.nanoTime();
+        if (lastRun != 0) loopTimes.record(now - lastRun);
+        lastRun = now;
+
+        for (int i = 0; i <= STAGES.length; i++) {
+            LatencyHistogram histogram = i < STAGES.length ? pipeline.getStageTimes(STAGES[i]) : loopTimes;
+            medians[i].set(histogram.getPercentileMillis(50));
+            tails[i].set(histogram.getPercentileMillis(99));
+        }
+    }
+
+    // Call at the end of runOpMode(). The file is named after the pipeline, so the next run of it replaces it.
+    public void dump() {
+        MotionScheduler.removePeriodic(this);
+        for (int i = 0; i < medians.length; i++) {
+            Logger.removeSlot(medians[i]);
+            Logger.removeSlot(tails[i]);
+        }
+        File file = new File(AppUtil.ROBOT_DATA_DIR, "vision-timing-" + pipeline.getClass().getSimpleName() + ".txt");
+        AppUtil.getInstance().ensureDirectoryExists(file.getParentFile());
+        try {
+            pipeline.writeTimings(file, loopTimes);
+        } catch (IOException e) {
+            Logger.addData("Couldn't write " + file.getName() + ": " + e.getMessage());
+        }
+    }
+
+}
@@ -8,12 +8,14 @@ import com.qualcomm.robotcore.hardware.DistanceSensor;
 import com.z3db0y.susanalib.Logger;
 import com.z3db0y.susanalib.MecanumDriveTrain;
 import com.z3db0y.susanalib.Motor;
+import com.z3db0y.susanalib.MotionScheduler;
 
 import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
 
 @com.qualcomm.robotcore.eventloop.opmode.Autonomous(name = "Autonomous Test", group = "SusanaLib")
 @Disabled
 public class Autonomous extends LinearOpMode {
+    private static final Logger.Tag DISTANCE_TAG = Logger.tag("Autonomous.driveBackWallDistance");
     Motor frontLeft;
     Motor frontRight;
     Motor backLeft;
@@ -51,6 +53,7 @@ public class Autonomous extends LinearOpMode {
         parameters.loggingTag = "IMU";
         imu.initialize(parameters);
 
+        MotionScheduler.clear();
         driveTrain = new MecanumDriveTrain(frontLeft, frontRight, backLeft, backRight, imu);
     }
 
@@ -75,8 +78,9 @@ public class Autonomous extends LinearOpMode {
     }
 
     private void driveBackWallDistance(double distance) {
-        while (backDistance.getDistance(DistanceUnit.CM) > distance) {
-            Logger.addData("Distance: " + backDistance.getDistance(DistanceUnit.CM));
+        double current;
+        while ((current = backDistance.getDistance(DistanceUnit.CM)) > distance) {
+            DISTANCE_TAG.addData("Distance: ", current);
             Logger.update();
             driveTrain.setPowerAll(0.2);
         }
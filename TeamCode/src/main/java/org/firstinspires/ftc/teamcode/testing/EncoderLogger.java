@@ -7,7 +7,9 @@ import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
 import com.qualcomm.robotcore.hardware.DcMotor;
 import com.qualcomm.robotcore.hardware.DistanceSensor;
 import com.qualcomm.robotcore.hardware.TouchSensor;
+import com.z3db0y.susanalib.BulkRead;
 import com.z3db0y.susanalib.Logger;
+import com.z3db0y.susanalib.LoopTimer;
 import com.z3db0y.susanalib.Motor;
 
 import org.firstinspires.ftc.teamcode.autonomous.vision.TseDetector;
@@ -16,6 +18,7 @@ import org.firstinspires.ftc.teamcode.Configurable;
 @Autonomous(name = "Encoder Logger", group = "SusanaLib")
 @Disabled
 public class EncoderLogger extends LinearOpMode {
+    private static final Logger.Tag TAG = Logger.tag("EncoderLogger.runOpMode");
 
     TseDetector detector;
     Motor frontLeft;
@@ -37,6 +40,7 @@ public class EncoderLogger extends LinearOpMode {
         arm = new Motor(hardwareMap, "arm");
         collector = new Motor(hardwareMap, "collector");
         duckSpinner = new Motor(hardwareMap, "duckSpinner");
+        BulkRead.enable(hardwareMap);
 
         // Motor reversing
         backLeft.setDirection(Motor.Direction.REVERSE);
@@ -63,34 +67,43 @@ public class EncoderLogger extends LinearOpMode {
 
     @Override
     public void runOpMode() {
-        Logger.setTelemetry(telemetry);
-        initHardware();
-        waitForStart();
-        Motor[] motors = new Motor[]{frontLeft, frontRight, backLeft, backRight};
-        int[] motorTicks = new int[]{0, 0, 0, 0};
-        double[] motorVelo = new double[]{0, 0, 0, 0};
-        while (opModeIsActive()) {
-            int ticks = 0;
-            int averageTicks = 0;
-            int averageVelo = 0;
-            for(int i = 0; i < motors.length; i++) {
-                motorTicks[i] = Math.abs(motors[i].getCurrentPosition());
-                motorVelo[i] = Math.abs(motors[i].getVelocity());
-                ticks += motorTicks[i];
-                averageVelo += motorVelo[i];
-            }
-            averageVelo /= motors.length;
-            averageTicks = ticks / motors.length;
+        try {
+            Logger.setTelemetry(telemetry);
+            initHardware();
+            waitForStart();
+            Motor[] motors = new Motor[]{frontLeft, frontRight, backLeft, backRight};
+            int[] motorTicks = new int[]{0, 0, 0, 0};
+            double[] motorVelo = new double[]{0, 0, 0, 0};
+            LoopTimer loopTimer = new LoopTimer(50);
+            while (opModeIsActive()) {
+                BulkRead.clear();
+                int ticks = 0;
+                int averageTicks = 0;
+                int averageVelo = 0;
+                for(int i = 0; i < motors.length; i++) {
+                    motorTicks[i] = Math.abs(motors[i].getCurrentPosition());
+                    motorVelo[i] = Math.abs(motors[i].getVelocity());
+                    ticks += motorTicks[i];
+                    averageVelo += motorVelo[i];
+                }
+                averageVelo /= motors.length;
+                averageTicks = ticks / motors.length;
 
-            double ratio = Configurable.driveGearRatio/2;
-            double circumference = Configurable.wheelCircumference;
+                double ratio = Configurable.driveGearRatio/2;
+                double circumference = Configurable.wheelCircumference;
 
-            double cm = (circumference * averageTicks) / (28 * ratio);
+                double cm = (circumference * averageTicks) / (28 * ratio);
 
-            Logger.addData("Average ticks: " + averageTicks);
-            Logger.addData("CM: " + cm);
-            Logger.addData("Velo: " + averageVelo);
-            Logger.update();
+                TAG.addData("Average ticks: ", averageTicks);
+                TAG.addData("CM: ", cm);
+                TAG.addData("Velo: ", averageVelo);
+                Logger.buffer().append("Loop: ").append(loopTimer.getLastLoopMillis()).append("ms / ").append(loopTimer.getPeriodMillis()).append("ms, overruns: ").append(loopTimer.getOverruns());
+                TAG.addBuffer();
+                Logger.update();
+                loopTimer.waitForNext();
+            }
+        } finally {
+            BulkRead.disable();
         }
     }
 
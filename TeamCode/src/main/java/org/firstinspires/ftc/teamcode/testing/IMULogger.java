@@ -3,11 +3,15 @@ package org.firstinspires.ftc.teamcode.testing;
 import com.qualcomm.hardware.bosch.BNO055IMU;
 import com.qualcomm.robotcore.eventloop.opmode.Disabled;
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.z3db0y.susanalib.ImuSampler;
 import com.z3db0y.susanalib.Logger;
 
+import org.firstinspires.ftc.teamcode.Configurable;
+
 @com.qualcomm.robotcore.eventloop.opmode.Autonomous(name = "IMU Logger", group = "SusanaLib")
 @Disabled
 public class IMULogger extends LinearOpMode {
+    private static final Logger.Tag TAG = Logger.tag("IMULogger.runOpMode");
     BNO055IMU imu;
 
     private void initHardware() {
@@ -17,22 +21,30 @@ public class IMULogger extends LinearOpMode {
         parameters.accelUnit = BNO055IMU.AccelUnit.METERS_PERSEC_PERSEC;
         parameters.angleUnit = BNO055IMU.AngleUnit.DEGREES;
         imu.initialize(parameters);
+        ImuSampler.start(imu, Configurable.imuSampleRate);
     }
 
     @Override
     public void runOpMode() {
-        initHardware();
-        waitForStart();
-        Logger.setTelemetry(telemetry);
-        while (opModeIsActive()) {
-            Logger.addData(imu.getAngularOrientation().firstAngle);
-            Logger.addData(imu.getAngularOrientation().secondAngle);
-            Logger.addData(imu.getAngularOrientation().thirdAngle);
-            Logger.addData(imu.getLinearAcceleration().xAccel);
-            Logger.addData(imu.getLinearAcceleration().yAccel);
-            Logger.addData(imu.getLinearAcceleration().zAccel);
-
-            Logger.update();
+        try {
+            initHardware();
+            waitForStart();
+            Logger.setTelemetry(telemetry);
+            while (opModeIsActive()) {
+                // One sample, so all six values come from the same read.
+                ImuSampler.Sample sample = ImuSampler.getLatest(imu);
+                TAG.addData("", sample.firstAngle);
+                TAG.addData("", sample.secondAngle);
+                TAG.addData("", sample.thirdAngle);
+                TAG.addData("", sample.xAccel);
+                TAG.addData("", sample.yAccel);
+                TAG.addData("", sample.zAccel);
+                TAG.addData("Sample age: ", sample.getAgeSeconds());
+
+                Logger.update();
+            }
+        } finally {
+            ImuSampler.stop();
         }
     }
 
@@ -8,6 +8,7 @@ import com.qualcomm.robotcore.hardware.DcMotorEx;
 import com.z3db0y.susanalib.Logger;
 import com.z3db0y.susanalib.MecanumDriveTrain;
 import com.z3db0y.susanalib.Motor;
+import com.z3db0y.susanalib.MotionScheduler;
 
 import org.firstinspires.ftc.teamcode.Configurable;
 
@@ -56,6 +57,7 @@ public class Velocity extends LinearOpMode {
         frontRight.setDirection(Motor.Direction.REVERSE);
 
         BNO055IMU imu = hardwareMap.get(BNO055IMU.class, "imu");
+        MotionScheduler.clear();
         MecanumDriveTrain driveTrain = new MecanumDriveTrain(frontLeft, frontRight, backLeft, backRight, imu);
 
         driveTrain.strafeCM(MecanumDriveTrain.Side.RIGHT, 10, 0.2);